@@ -0,0 +1,317 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.Pieces;
+
+/**
+ * Short-lived visual effects: line-clear flashes, particles and the stack collapsing into
+ * the cleared rows, lock flashes, hard-drop trails and score pop-ups.
+ *
+ * <p>The engine is never held up: it reports what happened through its listener and moves
+ * on, and effects only replay it on screen. Effects and particles live in preallocated
+ * parallel arrays, so spawning one never allocates; when a pool is full, new ones are
+ * dropped. An effect starts at the first frame timestamp passed to {@link #update} after
+ * it was spawned and ends a fixed time later, so its speed does not depend on the frame
+ * rate. Not thread-safe: call everything on the thread driving the engine.
+ */
+final class Effects implements GameEngine.Listener {
+    static final int LOCK_FLASH = 0;
+    static final int ROW_FLASH = 1;
+    static final int TRAIL = 2;
+    static final int SCORE = 3;
+
+    static final int MAX_EFFECTS = 32;
+    static final int MAX_PARTICLES = 256;
+
+    private static final long PENDING = Long.MIN_VALUE; // Spawned, not shown on a frame yet
+    private static final long[] DURATIONS = {150_000_000L, 250_000_000L, 200_000_000L, 700_000_000L};
+    private static final long HOLD_NANOS = 100_000_000L; // Cleared rows flash before the stack falls
+    private static final long PARTICLE_NANOS = 600_000_000L;
+    private static final float GRAVITY = 40; // Rows per second squared
+    private static final int MAX_CLEARED = 4; // A piece spans at most four rows
+
+    private final GameEngine engine;
+    private long now;
+    private int lastScore;
+
+    // One slot per effect; x and y are board cells, type and rotation the piece for LOCK_FLASH and TRAIL
+    private final int[] kind = new int[MAX_EFFECTS];
+    private final long[] start = new long[MAX_EFFECTS];
+    private final int[] x = new int[MAX_EFFECTS];
+    private final int[] y = new int[MAX_EFFECTS];
+    private final int[] type = new int[MAX_EFFECTS];
+    private final int[] rotation = new int[MAX_EFFECTS];
+    private final int[] value = new int[MAX_EFFECTS]; // Points for SCORE, rows fallen for TRAIL
+    private int count;
+
+    // Particles move ballistically from where they spawned, in board cells
+    private final float[] particleX = new float[MAX_PARTICLES];
+    private final float[] particleY = new float[MAX_PARTICLES];
+    private final float[] particleVx = new float[MAX_PARTICLES];
+    private final float[] particleVy = new float[MAX_PARTICLES];
+    private final int[] particleColor = new int[MAX_PARTICLES];
+    private final long[] particleStart = new long[MAX_PARTICLES];
+    private int particles;
+    private int seed = 0x9E3779B9; // Xorshift state for particle velocities
+
+    // Rows reported for the lock in progress, then the rows of the last clear while its stack falls
+    private final int[] clearing = new int[MAX_CLEARED];
+    private int clearingCount;
+    private final int[] collapseRows = new int[MAX_CLEARED];
+    private int collapseCount;
+    private long collapseStart;
+
+    Effects(GameEngine engine) {
+        this.engine = engine;
+        lastScore = engine.getScore();
+    }
+
+    /** Effects that only receive {@link #copyFrom copies}, e.g. to be drawn on another thread. */
+    Effects() {
+        engine = null;
+    }
+
+    /** Overwrites these effects with what {@code other} is playing, without allocating. */
+    void copyFrom(Effects other) {
+        now = other.now;
+        count = other.count;
+        System.arraycopy(other.kind, 0, kind, 0, count);
+        System.arraycopy(other.start, 0, start, 0, count);
+        System.arraycopy(other.x, 0, x, 0, count);
+        System.arraycopy(other.y, 0, y, 0, count);
+        System.arraycopy(other.type, 0, type, 0, count);
+        System.arraycopy(other.rotation, 0, rotation, 0, count);
+        System.arraycopy(other.value, 0, value, 0, count);
+        particles = other.particles;
+        System.arraycopy(other.particleX, 0, particleX, 0, particles);
+        System.arraycopy(other.particleY, 0, particleY, 0, particles);
+        System.arraycopy(other.particleVx, 0, particleVx, 0, particles);
+        System.arraycopy(other.particleVy, 0, particleVy, 0, particles);
+        System.arraycopy(other.particleColor, 0, particleColor, 0, particles);
+        System.arraycopy(other.particleStart, 0, particleStart, 0, particles);
+        collapseCount = other.collapseCount;
+        System.arraycopy(other.collapseRows, 0, collapseRows, 0, collapseCount);
+        collapseStart = other.collapseStart;
+    }
+
+    /** Drops every effect, e.g. when a new game starts. */
+    void reset() {
+        count = 0;
+        particles = 0;
+        clearingCount = 0;
+        collapseCount = 0;
+        if (engine != null) lastScore = engine.getScore();
+    }
+
+    /** Call just before the engine applies a hard drop, to trail the piece down to where it lands. */
+    void hardDrop() {
+        if (engine.isGameOver()) return;
+        int fallen = engine.getGhostY() - engine.getShapeY();
+        if (fallen <= 0) return;
+        int i = spawn(TRAIL, engine.getShapeX(), engine.getGhostY());
+        if (i < 0) return;
+        type[i] = engine.getShapeType();
+        rotation[i] = engine.getRotation();
+        value[i] = fallen;
+    }
+
+    @Override
+    public void onRowCleared(int row) {
+        if (clearingCount < MAX_CLEARED) clearing[clearingCount++] = row;
+        spawn(ROW_FLASH, 0, row);
+        // A particle from every block of the row, in its colour
+        Board board = engine.getBoard();
+        for (int col = 0; col < board.width() && particles < MAX_PARTICLES; col++) {
+            int p = particles++;
+            particleX[p] = col + 0.5f;
+            particleY[p] = row + 0.5f;
+            particleVx[p] = (random() - 0.5f) * 6;
+            particleVy[p] = -4 - random() * 8;
+            particleColor[p] = board.get(col, row);
+            particleStart[p] = PENDING;
+        }
+    }
+
+    @Override
+    public void onLock(int linesCleared) {
+        int i = spawn(LOCK_FLASH, engine.getShapeX(), engine.getShapeY());
+        if (i >= 0) {
+            type[i] = engine.getShapeType();
+            rotation[i] = engine.getRotation();
+        }
+        if (clearingCount > 0) {
+            System.arraycopy(clearing, 0, collapseRows, 0, clearingCount);
+            collapseCount = clearingCount;
+            collapseStart = PENDING;
+            clearingCount = 0;
+        }
+        int points = engine.getScore() - lastScore;
+        lastScore = engine.getScore();
+        if (points > 0) {
+            int s = spawn(SCORE, engine.getShapeX() + Pieces.boxSize(engine.getShapeType()) / 2, engine.getShapeY());
+            if (s >= 0) value[s] = points;
+        }
+    }
+
+    @Override
+    public void onGarbageAdded(int lines, int holeColumn) {
+        collapseCount = 0; // The rows moved under it, so the fall no longer lines up
+    }
+
+    // Returns the new effect's slot, or -1 if the pool is full
+    private int spawn(int effect, int cellX, int cellY) {
+        if (count == MAX_EFFECTS) return -1;
+        int i = count++;
+        kind[i] = effect;
+        start[i] = PENDING;
+        x[i] = cellX;
+        y[i] = cellY;
+        return i;
+    }
+
+    private float random() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return (seed >>> 8) / (float) (1 << 24);
+    }
+
+    /**
+     * Starts effects spawned since the last frame at {@code frameNanos} and retires finished
+     * ones. Returns true while anything is still playing, i.e. another frame is needed.
+     */
+    boolean update(long frameNanos) {
+        now = frameNanos;
+        for (int i = 0; i < count; ) {
+            if (start[i] == PENDING) start[i] = frameNanos;
+            if (frameNanos - start[i] >= DURATIONS[kind[i]]) {
+                moveEffect(--count, i); // The last one fills the gap and is checked next
+            } else {
+                i++;
+            }
+        }
+        for (int p = 0; p < particles; ) {
+            if (particleStart[p] == PENDING) particleStart[p] = frameNanos;
+            if (frameNanos - particleStart[p] >= PARTICLE_NANOS) {
+                moveParticle(--particles, p);
+            } else {
+                p++;
+            }
+        }
+        if (collapseCount > 0) {
+            if (collapseStart == PENDING) collapseStart = frameNanos;
+            if (frameNanos - collapseStart >= DURATIONS[ROW_FLASH]) collapseCount = 0;
+        }
+        return count > 0 || particles > 0 || collapseCount > 0;
+    }
+
+    private void moveEffect(int from, int to) {
+        kind[to] = kind[from];
+        start[to] = start[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        type[to] = type[from];
+        rotation[to] = rotation[from];
+        value[to] = value[from];
+    }
+
+    private void moveParticle(int from, int to) {
+        particleX[to] = particleX[from];
+        particleY[to] = particleY[from];
+        particleVx[to] = particleVx[from];
+        particleVy[to] = particleVy[from];
+        particleColor[to] = particleColor[from];
+        particleStart[to] = particleStart[from];
+    }
+
+    int count() {
+        return count;
+    }
+
+    int kind(int i) {
+        return kind[i];
+    }
+
+    /** How far effect {@code i} is through its life at the last frame, 0 to 1. */
+    float progress(int i) {
+        return elapsed(start[i]) / (float) DURATIONS[kind[i]];
+    }
+
+    int x(int i) {
+        return x[i];
+    }
+
+    int y(int i) {
+        return y[i];
+    }
+
+    int type(int i) {
+        return type[i];
+    }
+
+    int rotation(int i) {
+        return rotation[i];
+    }
+
+    int value(int i) {
+        return value[i];
+    }
+
+    int particleCount() {
+        return particles;
+    }
+
+    /** Board column, fractional, of particle {@code p} at the last frame. */
+    float particleX(int p) {
+        return particleX[p] + particleVx[p] * seconds(particleStart[p]);
+    }
+
+    float particleY(int p) {
+        float t = seconds(particleStart[p]);
+        return particleY[p] + particleVy[p] * t + GRAVITY / 2 * t * t;
+    }
+
+    /** Cell value (shape type + 1) of the block particle {@code p} came from. */
+    int particleColor(int p) {
+        return particleColor[p];
+    }
+
+    float particleProgress(int p) {
+        return elapsed(particleStart[p]) / (float) PARTICLE_NANOS;
+    }
+
+    /**
+     * While the stack falls into the last cleared rows, the board is drawn in bands of rows
+     * that each lie above the same number of cleared rows; returns how many, or 0 when the
+     * board is drawn as is. Band {@code k} lies above {@code k} cleared rows.
+     */
+    int collapseBands() {
+        return collapseCount == 0 ? 0 : collapseCount + 1;
+    }
+
+    /** First board row of band {@code k}, as the board is now, after the clear. */
+    int bandStart(int k) {
+        return k == collapseCount ? Integer.MIN_VALUE : collapseRows[collapseCount - 1 - k] + k + 1;
+    }
+
+    /** Row after the last of band {@code k}. */
+    int bandEnd(int k) {
+        return k == 0 ? Integer.MAX_VALUE : collapseRows[collapseCount - k] + k;
+    }
+
+    /** Rows band {@code k} is drawn below its place: up where it was, easing down to 0. */
+    float bandShift(int k) {
+        long fall = DURATIONS[ROW_FLASH] - HOLD_NANOS;
+        float t = Math.min(1, Math.max(0, elapsed(collapseStart) - HOLD_NANOS) / (float) fall);
+        return -k * (1 - t) * (1 - t); // Eases out
+    }
+
+    private long elapsed(long since) {
+        return since == PENDING ? 0 : now - since;
+    }
+
+    private float seconds(long since) {
+        return elapsed(since) / 1e9f;
+    }
+}
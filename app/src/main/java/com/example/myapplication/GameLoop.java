@@ -0,0 +1,559 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.AutoPlayer;
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.GameRecord;
+import com.example.myapplication.engine.GameSnapshot;
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.InputRing;
+import com.example.myapplication.engine.Puzzle;
+import com.example.myapplication.engine.Replay;
+import com.example.myapplication.engine.ReplayRecorder;
+import com.example.myapplication.engine.StatsStore;
+import com.example.myapplication.engine.SyncDecoder;
+import com.example.myapplication.engine.TripleBuffer;
+import com.example.myapplication.engine.VersusLink;
+import com.example.myapplication.engine.VersusSession;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a game on its own thread, so neither a slow frame nor the input thread can hold up a
+ * gravity tick, and the AI, replays, versus syncing and stats never run on the thread that
+ * draws or the one that takes input.
+ *
+ * <p>The engine is confined to the loop's thread. Inputs and commands reach it through an
+ * {@link InputRing} written only by the input thread; after every change the loop copies the
+ * game and its effects into a {@link Frame} and publishes it through a {@link TripleBuffer},
+ * which the render thread reads from without locks. When idle the loop parks until the next
+ * gravity tick, replayed input or versus sync, or until an input unparks it.
+ */
+final class GameLoop implements Runnable {
+    // Commands share the ring with inputs, numbered after them
+    static final int START = Input.COUNT;
+    static final int RETRY = Input.COUNT + 1;
+    static final int TOGGLE_AUTOPLAY = Input.COUNT + 2;
+    // Start screen only, like the keys that send them
+    static final int PLAY_REPLAY = Input.COUNT + 3;
+    static final int START_VERSUS = Input.COUNT + 4;
+    static final int CYCLE_BOARD_SIZE = Input.COUNT + 5;
+    static final int START_PUZZLE = Input.COUNT + 6;
+
+    private static final int MAX_CATCH_UP_TICKS = 3;
+    private static final long SYNC_INTERVAL_NANOS = GameModes.SYNC_INTERVAL * 1_000_000L;
+
+    /** What the loop needs from the app around it. Called on the loop's thread. */
+    interface Host {
+        /** App-private storage, where the last game's replay is kept. */
+        File filesDir();
+
+        /** Where finished games are counted and ranked. */
+        StatsStore stats();
+
+        /** Reports a failure the game carries on without, such as a replay that cannot be written. */
+        void warn(String message, Throwable error);
+    }
+
+    /** One published instant of the game. Read-only for the render thread once acquired. */
+    static final class Frame {
+        final GameSnapshot game = new GameSnapshot();
+        final Effects effects = new Effects();
+        boolean startScreen;
+        boolean replaying; // Inputs come from the replay, and gravity with them
+        boolean waitingForOpponent;
+        long nextGravityNanos; // System.nanoTime() of the next gravity tick, for interpolating the fall
+        SyncDecoder opponent; // Null unless this is a versus game
+        int pendingGarbage;
+        int gameOverRank = -1; // Leaderboard place of the game that just ended, or -1
+        String puzzleText = ""; // What the start screen says about a loaded puzzle
+        // Timings for PerfMetrics: the oldest input this frame shows, and the last gravity tick
+        long inputMillis = -1;
+        long gravityTicks, tickNanos, driftNanos;
+    }
+
+    private final long dropDelayNanos;
+    private final Host host; // Null runs without replays, versus and stats
+    private final InputRing inputs = new InputRing(256);
+    private final TripleBuffer<Frame> frames = new TripleBuffer<>(new Frame(), new Frame(), new Frame());
+    // Flags for the input thread, set when a frame is published
+    private volatile boolean startScreen = true;
+    private volatile boolean gameOver;
+    private volatile boolean replaying;
+    private volatile boolean waitingForOpponent;
+    // The solver's answer for the loaded puzzle, handed over from the solver's thread
+    private final AtomicReference<String> solvedPuzzle = new AtomicReference<>();
+
+    // Loop thread only, or any thread while the loop is stopped
+    private final GameEngine engine = new GameEngine();
+    private final Effects effects = new Effects(engine);
+    private final AutoPlayer autoPlayer = new AutoPlayer(1, 8); // Looks one preview piece ahead
+    private boolean autoPlay;
+    private boolean showingStartScreen = true;
+    private long nextGravityNanos;
+    private int boardSize; // Index into GameModes.BOARD_SIZES
+    // Every game gets its own seed so it can be recorded and replayed exactly
+    private final Random seeds = new Random();
+    private long gameSeed;
+    private long gameStartNanos;
+    private long stoppedAtNanos = -1; // Set while the loop is stopped in the middle of a game
+    private ReplayRecorder recorder; // Non-null while a live game is being recorded
+    private Replay replay; // Non-null while a recorded game is playing back
+    private int replayIndex;
+    private boolean resumedGame; // Restored after process death, so gameSeed did not deal it
+    private boolean statsRecorded; // This game's result has gone to the stats store
+    private int gameOverRank = -1;
+    private VersusSession versus; // Non-null during a versus game
+    private long nextSyncNanos;
+    private Puzzle puzzle; // Non-null while a puzzle is loaded or played
+    private String puzzleText = "";
+    private long pendingInputMillis = -1; // Oldest input applied since the last frame
+    private long gravityTicks, tickNanos, driftNanos;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    GameLoop(long dropDelayNanos) {
+        this(dropDelayNanos, null);
+    }
+
+    GameLoop(long dropDelayNanos, Host host) {
+        this.dropDelayNanos = dropDelayNanos;
+        this.host = host;
+        engine.addListener(effects);
+        newGame();
+        publish(System.nanoTime());
+    }
+
+    /** Starts the loop thread; the first gravity tick comes a full drop delay later. */
+    void start() {
+        long now = System.nanoTime();
+        if (stoppedAtNanos >= 0) {
+            // Recording and replay timestamps skip the time spent stopped
+            gameStartNanos += now - stoppedAtNanos;
+            stoppedAtNanos = -1;
+        }
+        nextGravityNanos = now + dropDelayNanos;
+        nextSyncNanos = now; // The opponent played on; catch up at once
+        running = true;
+        thread = new Thread(this, "GameLoop");
+        thread.start();
+    }
+
+    /** Stops the loop thread and waits for it, after which the game may be saved or restored. */
+    void stop() {
+        if (thread == null) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        stoppedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Queues an {@link Input} or command for the loop. Must always be called from the same
+     * thread; returns false if the loop is too far behind to take it.
+     */
+    boolean send(int code, long timeMillis) {
+        if (!inputs.offer(code, timeMillis)) return false;
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+        return true;
+    }
+
+    /** The newest frame. Must always be called from the same thread, which then owns the frame until the next call. */
+    Frame latestFrame() {
+        return frames.acquire();
+    }
+
+    boolean isStartScreen() {
+        return startScreen;
+    }
+
+    boolean isGameOver() {
+        return gameOver;
+    }
+
+    /** True while a recorded game plays back; only {@link #RETRY} leaves it. */
+    boolean isReplaying() {
+        return replaying;
+    }
+
+    /** True while a versus game waits on an empty board for the relay to pair us. */
+    boolean isWaitingForOpponent() {
+        return waitingForOpponent;
+    }
+
+    /** Saves the game in progress, or returns null if there is none. Only while stopped. */
+    byte[] saveState() {
+        if (showingStartScreen || replay != null || versus != null || puzzle != null || engine.isGameOver()) {
+            return null;
+        }
+        ByteBuffer state = ByteBuffer.allocate(engine.stateSize());
+        engine.writeState(state);
+        return state.array();
+    }
+
+    /** Restores a game saved by {@link #saveState}. Only while stopped. */
+    boolean restoreState(byte[] state) {
+        newGame();
+        if (!engine.readState(ByteBuffer.wrap(state))) return false;
+        effects.reset();
+        // The seed and inputs from before the save are gone, so the rest of this game is not recorded
+        showingStartScreen = false;
+        resumedGame = true;
+        gameStartNanos = System.nanoTime();
+        stoppedAtNanos = -1;
+        publish(System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            long now = System.nanoTime();
+            boolean changed = drainInputs(now);
+            String answer = solvedPuzzle.getAndSet(null);
+            if (answer != null && puzzle != null) {
+                puzzleText = answer;
+                changed = true;
+            }
+            if (replay != null) {
+                changed |= playReplay(now);
+            } else if (isFalling() && now >= nextGravityNanos) {
+                // After a stall, drop a few rows at most rather than all that were missed
+                if (now - nextGravityNanos > MAX_CATCH_UP_TICKS * dropDelayNanos) nextGravityNanos = now;
+                driftNanos = now - nextGravityNanos;
+                nextGravityNanos += dropDelayNanos;
+                input(Input.GRAVITY);
+                tickNanos = System.nanoTime() - now;
+                gravityTicks++;
+                changed = true;
+            }
+            if (versus != null && now >= nextSyncNanos) {
+                syncTick(now);
+                changed = true;
+            }
+            if (changed) publish(now);
+
+            if (!inputs.isEmpty()) continue;
+            long wake = nextWakeNanos();
+            if (wake == Long.MAX_VALUE) {
+                LockSupport.park(this); // Until an input arrives
+            } else if (wake > System.nanoTime()) {
+                LockSupport.parkNanos(this, wake - System.nanoTime());
+            }
+        }
+    }
+
+    // A live game whose piece gravity pulls down
+    private boolean isFalling() {
+        return !showingStartScreen && !engine.isGameOver() && replay == null && !isPairing();
+    }
+
+    // When the loop next has something to do by itself, or Long.MAX_VALUE to wait for input
+    private long nextWakeNanos() {
+        long wake = Long.MAX_VALUE;
+        if (isFalling()) wake = nextGravityNanos;
+        if (replay != null && replayIndex < replay.size()) {
+            wake = Math.min(wake, gameStartNanos + replay.getTime(replayIndex) * 1_000_000L);
+        }
+        if (versus != null) wake = Math.min(wake, nextSyncNanos);
+        return wake;
+    }
+
+    // Applies queued inputs and commands in order; returns true if anything changed
+    private boolean drainInputs(long now) {
+        boolean changed = false;
+        int next;
+        while ((next = inputs.poll()) != Input.NONE) {
+            // A replay drives the engine by itself; only leaving it via retry is allowed
+            if (replay != null && next != RETRY) continue;
+            changed = true;
+            switch (next) {
+                case START:
+                    if (showingStartScreen) startGame(now);
+                    break;
+                case RETRY:
+                    newGame();
+                    break;
+                case TOGGLE_AUTOPLAY:
+                    autoPlay = !autoPlay;
+                    if (autoPlay) steerAutoPlayer();
+                    break;
+                case PLAY_REPLAY:
+                    if (showingStartScreen) startReplay(now);
+                    break;
+                case START_VERSUS:
+                    if (showingStartScreen) startVersus(now);
+                    break;
+                case CYCLE_BOARD_SIZE:
+                    if (!showingStartScreen) break;
+                    boardSize = (boardSize + 1) % GameModes.BOARD_SIZES.length;
+                    newGame(); // Shows the new size on the start screen
+                    break;
+                case START_PUZZLE:
+                    if (showingStartScreen) loadPuzzle();
+                    break;
+                default:
+                    if (!isFalling()) break;
+                    if (pendingInputMillis < 0) pendingInputMillis = inputs.lastTime();
+                    input(next);
+                    break;
+            }
+        }
+        return changed;
+    }
+
+    // Back to the start screen with a fresh game of the chosen size
+    private void newGame() {
+        stopVersus();
+        stopRecording();
+        replay = null;
+        puzzle = null;
+        puzzleText = "";
+        gameSeed = seeds.nextLong();
+        resumedGame = false;
+        statsRecorded = false;
+        gameOverRank = -1;
+        engine.reset(gameSeed, GameModes.BOARD_SIZES[boardSize][0], GameModes.BOARD_SIZES[boardSize][1]);
+        effects.reset();
+        showingStartScreen = true;
+    }
+
+    private void startGame(long now) {
+        showingStartScreen = false;
+        gameStartNanos = now;
+        nextGravityNanos = now + dropDelayNanos; // First drop a full delay after the press
+        // Garbage from the opponent is not an input, so a versus game cannot be replayed, and
+        // the seed does not deal a puzzle's sequence
+        if (versus == null && puzzle == null) startRecording();
+    }
+
+    /** Applies and records one input of the live game. Returns true if the piece moved or rotated. */
+    private boolean input(int input) {
+        if (input == Input.HARD_DROP) effects.hardDrop();
+        boolean moved = engine.apply(input);
+        record(input);
+        if (engine.isGameOver()) {
+            finishRecording();
+            recordStats();
+        } else if (!moved && autoPlay && (input == Input.MOVE_DOWN || input == Input.GRAVITY || input == Input.HARD_DROP)) {
+            steerAutoPlayer(); // The piece locked and a new one just spawned
+        }
+        return moved;
+    }
+
+    // The AI only rotates and shifts, gravity still drops the piece. Its moves go through
+    // input() so they are recorded like the player's
+    private void steerAutoPlayer() {
+        if (!isFalling() || !autoPlayer.think(engine)) return;
+        int next;
+        while ((next = autoPlayer.nextInput(engine)) != Input.NONE && input(next)) {
+            // Keep going until the target is reached or a move is blocked
+        }
+    }
+
+    private void startRecording() {
+        if (host == null) return;
+        try {
+            File file = new File(host.filesDir(), GameModes.REPLAY_FILE);
+            Board board = engine.getBoard();
+            recorder = new ReplayRecorder(new FileOutputStream(file).getChannel(), gameSeed, board.width(), board.height());
+        } catch (IOException e) {
+            host.warn("Replay recording disabled", e);
+            recorder = null;
+        }
+    }
+
+    private void record(int input) {
+        if (recorder == null) return;
+        try {
+            recorder.record((System.nanoTime() - gameStartNanos) / 1_000_000L, input);
+        } catch (IOException e) {
+            host.warn("Replay recording failed", e);
+            stopRecording();
+        }
+    }
+
+    private void finishRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.finish(engine);
+        } catch (IOException e) {
+            host.warn("Replay recording failed", e);
+        }
+        stopRecording();
+    }
+
+    // Closes the file; an unfinished recording stays playable but cannot be verified
+    private void stopRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            host.warn("Replay recording failed", e);
+        }
+        recorder = null;
+    }
+
+    // Hands the finished game to the stats store, whose disk work happens on its own thread
+    private void recordStats() {
+        if (statsRecorded || puzzle != null || host == null) return; // Puzzle scores do not compare with games
+        statsRecorded = true;
+        int flags = (versus != null ? GameRecord.FLAG_VERSUS : 0) | (resumedGame ? GameRecord.FLAG_RESUMED : 0);
+        GameRecord game = GameRecord.of(engine, gameSeed, (System.nanoTime() - gameStartNanos) / 1_000_000L,
+                System.currentTimeMillis(), flags);
+        StatsStore stats = host.stats();
+        gameOverRank = stats.summary().rankOf(game);
+        stats.add(game);
+    }
+
+    /** Plays the last recorded game back in real time, following its recorded timestamps. */
+    private void startReplay(long now) {
+        if (host == null) return;
+        File file = new File(host.filesDir(), GameModes.REPLAY_FILE);
+        Replay loaded;
+        try (FileInputStream in = new FileInputStream(file)) {
+            loaded = Replay.read(in.getChannel());
+        } catch (IOException e) {
+            host.warn("No replay to play", e);
+            return;
+        }
+        newGame();
+        replay = loaded;
+        engine.reset(replay.getSeed(), replay.getBoardWidth(), replay.getBoardHeight());
+        effects.reset();
+        showingStartScreen = false;
+        replayIndex = 0;
+        gameStartNanos = now;
+    }
+
+    // Applies the inputs due by now; returns true if any was
+    private boolean playReplay(long now) {
+        long elapsedMillis = (now - gameStartNanos) / 1_000_000L;
+        boolean changed = false;
+        while (replayIndex < replay.size() && replay.getTime(replayIndex) <= elapsedMillis) {
+            int input = replay.getInput(replayIndex++);
+            if (input == Input.HARD_DROP) effects.hardDrop();
+            engine.apply(input);
+            changed = true;
+        }
+        if (replayIndex < replay.size()) return changed;
+        if (!engine.isGameOver()) {
+            newGame(); // Recording was cut short, go back to the start screen
+        } else {
+            replay = null; // Leave the game over screen up
+        }
+        return true;
+    }
+
+    /**
+     * Connects to the relay and waits on an empty board for an opponent; the game starts
+     * once the relay pairs us. Both boards are then synced every {@link GameModes#SYNC_INTERVAL} ms.
+     */
+    private void startVersus(long now) {
+        if (host == null) return;
+        VersusLink link;
+        try {
+            link = new VersusLink(GameModes.RELAY_HOST, GameModes.RELAY_PORT);
+        } catch (IOException e) {
+            host.warn("Versus unavailable", e);
+            return;
+        }
+        newGame(); // Drops a loaded puzzle
+        engine.reset(gameSeed, GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT); // Both sides play the classic board
+        effects.reset();
+        versus = new VersusSession(engine, link, gameSeed);
+        showingStartScreen = false;
+        nextSyncNanos = now;
+    }
+
+    private boolean isPairing() {
+        return versus != null && !versus.opponent().isPaired();
+    }
+
+    private void syncTick(long now) {
+        boolean waiting = isPairing();
+        versus.tick(now);
+        if (engine.isGameOver()) recordStats(); // Garbage can top us out between inputs
+        if (versus.link().state() == VersusLink.CLOSED) {
+            host.warn("Versus link closed", versus.error());
+            stopVersus(); // Play on alone, or go back if the game never started
+            if (waiting) newGame();
+            return;
+        }
+        if (waiting && !isPairing()) startGame(now);
+        nextSyncNanos = Math.max(nextSyncNanos + SYNC_INTERVAL_NANOS, now); // Never more than one tick behind
+    }
+
+    private void stopVersus() {
+        if (versus == null) return;
+        versus.link().close();
+        engine.removeListener(versus);
+        versus = null;
+    }
+
+    /**
+     * Loads {@link GameModes#PUZZLE} onto the start screen, to be played with the start button,
+     * and has the solver say in the background whether it can be cleared within its budget.
+     */
+    private void loadPuzzle() {
+        newGame();
+        Puzzle loaded = GameModes.PUZZLE;
+        puzzle = loaded;
+        engine.reset(loaded, GameEngine.BOARD_HEIGHT);
+        effects.reset();
+        puzzleText = GameModes.PUZZLE_SOLVING;
+        GameModes.solve(loaded, answer -> {
+            solvedPuzzle.set(answer);
+            Thread t = thread;
+            if (t != null) LockSupport.unpark(t);
+        });
+    }
+
+    private void publish(long now) {
+        effects.update(now); // Retires finished effects, so the pools never fill with them
+        Frame frame = frames.back();
+        frame.game.copyFrom(engine);
+        frame.effects.copyFrom(effects);
+        frame.startScreen = showingStartScreen;
+        frame.replaying = replay != null;
+        frame.waitingForOpponent = isPairing();
+        frame.nextGravityNanos = nextGravityNanos;
+        if (versus != null) {
+            Board board = versus.opponent().board();
+            if (frame.opponent == null || frame.opponent.board().width() != board.width()
+                    || frame.opponent.board().height() != board.height()) {
+                frame.opponent = new SyncDecoder(board.width(), board.height());
+            }
+            frame.opponent.copyFrom(versus.opponent());
+            frame.pendingGarbage = versus.pendingGarbage();
+        } else {
+            frame.opponent = null;
+        }
+        frame.gameOverRank = gameOverRank;
+        frame.puzzleText = puzzleText;
+        frame.inputMillis = pendingInputMillis;
+        pendingInputMillis = -1;
+        frame.gravityTicks = gravityTicks;
+        frame.tickNanos = tickNanos;
+        frame.driftNanos = driftNanos;
+        frames.publish();
+        startScreen = showingStartScreen;
+        gameOver = engine.isGameOver();
+        replaying = replay != null;
+        waitingForOpponent = isPairing();
+    }
+}
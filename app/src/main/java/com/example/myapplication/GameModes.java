@@ -0,0 +1,56 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.Puzzle;
+import com.example.myapplication.engine.PuzzleSolver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/** Settings of the modes {@link GameLoop} starts from the start screen. */
+final class GameModes {
+    // Board sizes cycled with B on the start screen: classic, wide, and a scrolling marathon board
+    static final int[][] BOARD_SIZES = {
+            {GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT}, {16, 40}, {Board.MAX_WIDTH, 2000}
+    };
+    // The most recent game is recorded here, in app-private storage, and played back with R
+    static final String REPLAY_FILE = "last.replay";
+    // Versus games go through a relay (the relay module); 10.0.2.2 is the host seen from the emulator
+    static final String RELAY_HOST = "10.0.2.2";
+    static final int RELAY_PORT = 7777;
+    static final long SYNC_INTERVAL = 50; // ms between versus sync ticks
+    // Loaded with P on the start screen: clear the board within the budget
+    static final Puzzle PUZZLE = Puzzle.parse("TZJLJTZIST", 10,
+            "##........", "##........", "##........", "##........");
+    static final String PUZZLE_SOLVING = "Câu đố: đang giải…";
+
+    // Answers puzzles off the game's thread; searches can take a while on larger presets
+    private static final ExecutorService solver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PuzzleSolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GameModes() {
+    }
+
+    /**
+     * Solves {@code puzzle} on the solver's thread and hands {@code answer} the text to show
+     * for it, on that thread.
+     */
+    static void solve(Puzzle puzzle, Consumer<String> answer) {
+        solver.execute(() -> {
+            PuzzleSolver.Solution solution;
+            try (PuzzleSolver search = new PuzzleSolver(1, PuzzleSolver.DEFAULT_TABLE_BITS)) {
+                solution = search.solve(puzzle);
+            } catch (InterruptedException e) {
+                return;
+            }
+            answer.accept(solution != null
+                    ? "Câu đố: giải được với " + solution.pieces() + "/" + puzzle.maxPieces() + " khối"
+                    : "Câu đố: không giải được trong " + puzzle.maxPieces() + " khối");
+        });
+    }
+}
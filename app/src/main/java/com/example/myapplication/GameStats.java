@@ -0,0 +1,28 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import com.example.myapplication.engine.StatsStore;
+
+import java.io.File;
+
+/**
+ * The one {@link StatsStore} of the process, in app-private storage. Shared so that views
+ * recreated with the activity never open the log twice.
+ */
+final class GameStats {
+    private static final String DIR = "stats";
+    private static final int LEADERBOARD_SIZE = 100;
+    private static StatsStore store;
+
+    private GameStats() {
+    }
+
+    /** Returns the store, opening it on first use; loading happens on the store's own thread. */
+    static synchronized StatsStore get(Context context) {
+        if (store == null) {
+            store = new StatsStore(new File(context.getApplicationContext().getFilesDir(), DIR), LEADERBOARD_SIZE);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.myapplication;
+
+/** What MainActivity needs from the game view to survive pauses and process death. */
+interface GameView {
+    /**
+     * The game in progress, or null if there is nothing to resume. The blob grows with the
+     * stack, up to {@link com.example.myapplication.engine.GameEngine#MAX_STATE_SIZE} bytes.
+     */
+    byte[] saveState();
+
+    /**
+     * Continues the game saved by {@link #saveState}; returns false if the blob is unusable.
+     * A save read from disk may arrive after {@link #resume}, and then only replaces the
+     * start screen, never a game the player has begun.
+     */
+    boolean restoreState(byte[] state);
+
+    /** The activity went to the background: stop the clock. */
+    void pause();
+
+    /** The activity is back in front: carry on where {@link #pause} stopped. */
+    void resume();
+}
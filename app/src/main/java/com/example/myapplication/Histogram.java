@@ -0,0 +1,85 @@
+package com.example.myapplication;
+
+/**
+ * Fixed-size histogram of non-negative durations in nanoseconds, cheap enough to record
+ * into on every frame. Buckets are log-linear: each power of two is split into
+ * {@code SUB_BUCKETS} equal slices, so a percentile is accurate to within 1/8 of its value
+ * from 1 ns up to {@code Long.MAX_VALUE}. Recording never allocates and is not thread-safe.
+ */
+final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Values below SUB_BUCKETS get a bucket each, then one group per exponent up to bit 62
+    private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BITS);
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    /** Overwrites {@code dest} with this histogram's contents. */
+    void copyTo(Histogram dest) {
+        System.arraycopy(counts, 0, dest.counts, 0, BUCKETS);
+        dest.count = count;
+        dest.sum = sum;
+        dest.max = max;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    long mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Smallest bucket bound that at least {@code fraction} of the samples fall under, capped
+     * at the exact maximum. Returns 0 when empty.
+     */
+    long percentile(double fraction) {
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    int bucketCount() {
+        return BUCKETS;
+    }
+
+    long countAt(int bucket) {
+        return counts[bucket];
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Largest value that lands in {@code bucket}. */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent;
+        return low + (1L << exponent) - 1;
+    }
+}
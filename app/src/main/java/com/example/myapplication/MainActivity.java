@@ -1,12 +1,49 @@
 package com.example.myapplication;
 
 import android.os.Bundle;
+import android.view.View;
+
 import androidx.appcompat.app.AppCompatActivity;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String KEY_GAME_STATE = "gameState";
+
+    private GameView gameView;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(new TetrisView(this));
+        gameView = new TetrisSurfaceView(this);
+        if (savedInstanceState != null) {
+            // A recreated activity has its bundle, restored before the first frame is drawn
+            byte[] state = savedInstanceState.getByteArray(KEY_GAME_STATE);
+            if (state != null) gameView.restoreState(state);
+        } else {
+            // A cold start falls back to the file from onPause, read off the UI thread
+            SavedGame.loadAsync(this, state -> {
+                if (state != null && !isFinishing()) gameView.restoreState(state);
+            });
+        }
+        setContentView((View) gameView);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        gameView.resume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        gameView.pause();
+        SavedGame.writeAsync(this, gameView.saveState());
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        byte[] state = gameView.saveState();
+        if (state != null) outState.putByteArray(KEY_GAME_STATE, state);
     }
 }
\ No newline at end of file
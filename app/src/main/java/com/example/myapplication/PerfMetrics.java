@@ -0,0 +1,162 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Runtime timings for finding jank on real devices: how long each frame takes to draw,
+ * how long each gravity tick takes, how long an input waits until a frame shows it, and
+ * how late each drop fires compared to the drop delay. Recording and drawing the overlay
+ * never allocate; only {@link #dump} does. All methods must be called on the thread that
+ * draws, TetrisSurfaceView's render thread.
+ */
+final class PerfMetrics {
+    private static final String TAG = "PerfMetrics";
+    private static final String[] NAMES = {"draw", "tick", "input", "drift"};
+    static final int DRAW = 0;
+    static final int TICK = 1;
+    static final int INPUT_LATENCY = 2;
+    static final int DROP_DRIFT = 3;
+
+    private final Histogram[] histograms = new Histogram[NAMES.length];
+    // Time of the oldest input not yet shown on screen, or -1
+    private long pendingInputNanos = -1;
+
+    private boolean overlayVisible;
+    private final Paint backgroundPaint = new Paint();
+    private final Paint textPaint = new Paint();
+    // One overlay line, "draw  p50 1.23 p99 4.56 max 12.34 ms", rewritten in place per frame
+    private final char[] line = new char[64];
+
+    PerfMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        backgroundPaint.setColor(Color.parseColor("#B0000000"));
+        textPaint.setColor(Color.GREEN);
+        textPaint.setTypeface(Typeface.MONOSPACE);
+        textPaint.setAntiAlias(true);
+    }
+
+    void record(int metric, long nanos) {
+        histograms[metric].record(nanos);
+    }
+
+    /**
+     * Notes that an input arrived at {@code eventTimeMillis}, in {@link android.os.SystemClock#uptimeMillis}
+     * time like {@code MotionEvent.getEventTime()}. Only the oldest unrendered input is kept.
+     */
+    void inputReceived(long eventTimeMillis) {
+        if (pendingInputNanos < 0) pendingInputNanos = eventTimeMillis * 1_000_000L;
+    }
+
+    /**
+     * Call at the end of a frame. uptimeMillis and nanoTime both read CLOCK_MONOTONIC on
+     * Android, so the two can be subtracted.
+     */
+    void frameDrawn(long startNanos) {
+        long now = System.nanoTime();
+        histograms[DRAW].record(now - startNanos);
+        if (pendingInputNanos >= 0) {
+            histograms[INPUT_LATENCY].record(now - pendingInputNanos);
+            pendingInputNanos = -1;
+        }
+    }
+
+    void toggleOverlay() {
+        overlayVisible = !overlayVisible;
+    }
+
+    /** The overlay changes every frame, so while it is up every frame redraws it. */
+    boolean isOverlayVisible() {
+        return overlayVisible;
+    }
+
+    /** Draws p50/p99/max of every metric in the top-left corner. */
+    void drawOverlay(Canvas canvas, float textSize) {
+        if (!overlayVisible) return;
+        textPaint.setTextSize(textSize);
+        float lineHeight = textSize * 1.2f;
+        canvas.drawRect(0, 0, textSize * 22, lineHeight * NAMES.length + textSize * 0.5f, backgroundPaint);
+        for (int i = 0; i < NAMES.length; i++) {
+            Histogram h = histograms[i];
+            int n = append(0, NAMES[i]);
+            while (n < 6) line[n++] = ' ';
+            n = append(n, "p50 ");
+            n = appendMillis(n, h.percentile(0.5));
+            n = append(n, " p99 ");
+            n = appendMillis(n, h.percentile(0.99));
+            n = append(n, " max ");
+            n = appendMillis(n, h.max());
+            n = append(n, " ms");
+            canvas.drawText(line, 0, n, textSize * 0.3f, lineHeight * (i + 1), textPaint);
+        }
+    }
+
+    private int append(int at, String text) {
+        text.getChars(0, text.length(), line, at);
+        return at + text.length();
+    }
+
+    // Writes nanos as milliseconds with two decimals, e.g. 1234567 -> "1.23"
+    private int appendMillis(int at, long nanos) {
+        long hundredths = Math.min(nanos / 10_000, 99_999_999L);
+        int digits = 1;
+        for (long v = hundredths / 100; v >= 10; v /= 10) digits++;
+        int end = at + digits + 3;
+        line[end - 1] = (char) ('0' + hundredths % 10);
+        line[end - 2] = (char) ('0' + hundredths / 10 % 10);
+        line[end - 3] = '.';
+        long whole = hundredths / 100;
+        for (int i = end - 4; i >= at; i--) {
+            line[i] = (char) ('0' + whole % 10);
+            whole /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Writes a snapshot of every histogram to {@code file} on a background thread: a summary
+     * line per metric followed by its non-empty buckets, so runs from several devices can be
+     * compared offline.
+     */
+    void dump(File file) {
+        Histogram[] snapshot = new Histogram[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            snapshot[i] = new Histogram();
+            histograms[i].copyTo(snapshot[i]);
+        }
+        new Thread(() -> {
+            try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                out.printf("# %s %s, API %d%n", Build.MANUFACTURER, Build.MODEL, Build.VERSION.SDK_INT);
+                out.println("# metric count mean_ns p50_ns p90_ns p99_ns p999_ns max_ns");
+                for (int i = 0; i < snapshot.length; i++) {
+                    Histogram h = snapshot[i];
+                    out.printf("%s %d %d %d %d %d %d %d%n", NAMES[i], h.count(), h.mean(), h.percentile(0.5),
+                            h.percentile(0.9), h.percentile(0.99), h.percentile(0.999), h.max());
+                }
+                out.println("# metric bucket_upper_ns count");
+                for (int i = 0; i < snapshot.length; i++) {
+                    Histogram h = snapshot[i];
+                    for (int b = 0; b < h.bucketCount(); b++) {
+                        if (h.countAt(b) != 0) {
+                            out.printf("%s %d %d%n", NAMES[i], Histogram.upperBound(b), h.countAt(b));
+                        }
+                    }
+                }
+                Log.i(TAG, "Metrics written to " + file);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write metrics", e);
+            }
+        }, "MetricsDump").start();
+    }
+}
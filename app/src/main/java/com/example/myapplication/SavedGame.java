@@ -0,0 +1,84 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.myapplication.engine.GameEngine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * The game in progress in app-private storage, for cold starts after the process was killed.
+ * Reads and writes happen on one background thread, in order, so a read never sees a
+ * half-written save; writes go through a temporary file that is renamed over the old one, so
+ * a kill mid-write never leaves a torn save behind.
+ */
+final class SavedGame {
+    private static final String TAG = "SavedGame";
+    private static final String FILE = "game.sav";
+    private static final ExecutorService disk = Executors.newSingleThreadExecutor();
+
+    private SavedGame() {
+    }
+
+    /**
+     * Reads the saved game in the background and hands it, or null if there is none, to
+     * {@code loaded} on the UI thread. Only the stack is saved, so the blob is usually a few
+     * hundred bytes, but a full marathon board makes it {@link GameEngine#MAX_STATE_SIZE}.
+     */
+    static void loadAsync(Context context, Consumer<byte[]> loaded) {
+        File dir = context.getApplicationContext().getFilesDir();
+        Handler main = new Handler(Looper.getMainLooper());
+        disk.execute(() -> {
+            byte[] state = load(dir);
+            main.post(() -> loaded.accept(state));
+        });
+    }
+
+    private static byte[] load(File dir) {
+        File file = new File(dir, FILE);
+        if (!file.isFile() || file.length() > GameEngine.MAX_STATE_SIZE) return null;
+        byte[] state = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < state.length) {
+                int n = in.read(state, read, state.length - read);
+                if (n < 0) return null;
+                read += n;
+            }
+            return state;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read saved game", e);
+            return null;
+        }
+    }
+
+    /** Replaces the saved game with {@code state}, or deletes it if {@code state} is null. */
+    static void writeAsync(Context context, byte[] state) {
+        File dir = context.getApplicationContext().getFilesDir();
+        disk.execute(() -> {
+            File file = new File(dir, FILE);
+            if (state == null) {
+                file.delete();
+                return;
+            }
+            File temp = new File(dir, FILE + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(state);
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not save game", e);
+                return;
+            }
+            if (!temp.renameTo(file)) Log.w(TAG, "Could not replace saved game");
+        });
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.myapplication;
+
+import android.graphics.RectF;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import com.example.myapplication.engine.AutoRepeat;
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.InputQueue;
+
+/**
+ * Maps touch and key events to game actions, hit testing the renderer's buttons and
+ * telling swipes from taps.
+ *
+ * <p>Game moves are not returned but queued, timestamped, the moment they happen: a button
+ * acts on touch down, a swipe moves one column (or row) per {@code blockSize} of travel,
+ * historical touch samples included, and held buttons and keys repeat with our own
+ * DAS/ARR instead of the OS key repeat. The game tick drains {@link #queue()} in order.
+ */
+final class TetrisControls {
+    static final int NONE = 0;
+    static final int START = 1;
+    static final int RETRY = 2;
+    static final int QUEUED = 3; // Game moves were added to the queue
+    static final int TOGGLE_AUTOPLAY = 7;
+    static final int PLAY_REPLAY = 8;
+    static final int TOGGLE_METRICS = 9;
+    static final int DUMP_METRICS = 10;
+    static final int START_VERSUS = 11;
+    static final int CYCLE_BOARD_SIZE = 12;
+    static final int START_PUZZLE = 13;
+
+    // Delayed auto shift and auto-repeat rate for held buttons and keys
+    static final long DEFAULT_DAS_MILLIS = 170;
+    static final long DEFAULT_ARR_MILLIS = 50;
+
+    private static final float SWIPE_THRESHOLD = 100; // Upward travel that rotates
+    private static final int AXIS_NONE = 0, AXIS_HORIZONTAL = 1, AXIS_VERTICAL = 2;
+
+    private final TetrisRenderer renderer;
+    private final InputQueue queue = new InputQueue(64);
+    private final AutoRepeat autoRepeat;
+
+    // Swipe state: the anchor advances by one block per move queued
+    private float anchorX, anchorY;
+    private int swipeAxis;
+    private boolean swipeRotated;
+    private int heldButton = Input.NONE;
+
+    TetrisControls(TetrisRenderer renderer) {
+        this(renderer, DEFAULT_DAS_MILLIS, DEFAULT_ARR_MILLIS);
+    }
+
+    TetrisControls(TetrisRenderer renderer, long dasMillis, long arrMillis) {
+        this.renderer = renderer;
+        this.autoRepeat = new AutoRepeat(dasMillis, arrMillis);
+    }
+
+    /** Pending game moves, oldest first. */
+    InputQueue queue() {
+        return queue;
+    }
+
+    /**
+     * Queues auto-repeats due by {@code nowMillis} ({@code SystemClock.uptimeMillis()} time)
+     * and returns when the next one falls due, or -1 if nothing is held.
+     */
+    long pollRepeats(long nowMillis) {
+        return autoRepeat.poll(nowMillis, queue);
+    }
+
+    /** Drops pending moves and held repeats, e.g. when a game ends. */
+    void reset() {
+        queue.clear();
+        autoRepeat.releaseAll();
+        heldButton = Input.NONE;
+    }
+
+    /** Returns the action the touch event triggers, {@link #QUEUED} or {@link #NONE}. */
+    int onTouchEvent(MotionEvent event, boolean isStartScreen, boolean isGameOver) {
+        float x = event.getX();
+        float y = event.getY();
+
+        // Handle start screen touch
+        if (isStartScreen && event.getAction() == MotionEvent.ACTION_UP
+                && contains(renderer.getStartButton(), x, y)) {
+            return START;
+        }
+
+        // Handle game over retry button touch
+        if (isGameOver && event.getAction() == MotionEvent.ACTION_UP
+                && contains(renderer.getRetryButton(), x, y)) {
+            return RETRY;
+        }
+
+        // If game is over or on start screen, do not process game controls
+        if (isGameOver || isStartScreen) return NONE;
+
+        int queued = queue.size();
+        long time = event.getEventTime();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // Buttons act on touch down and repeat while held
+                heldButton = buttonAt(x, y);
+                if (heldButton != Input.NONE) {
+                    queue.offer(heldButton, time);
+                    if (repeats(heldButton)) autoRepeat.press(heldButton, time);
+                } else {
+                    anchorX = x;
+                    anchorY = y;
+                    swipeAxis = AXIS_NONE;
+                    swipeRotated = false;
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (heldButton != Input.NONE) break;
+                // Samples batched since the last event, oldest first, then the current one
+                for (int h = 0; h < event.getHistorySize(); h++) {
+                    trackSwipe(event.getHistoricalX(h), event.getHistoricalY(h), event.getHistoricalEventTime(h));
+                }
+                trackSwipe(x, y, time);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                autoRepeat.release(heldButton);
+                heldButton = Input.NONE;
+                break;
+        }
+        return queue.size() != queued ? QUEUED : NONE;
+    }
+
+    // Queues a move for every full block the finger has travelled since the anchor
+    private void trackSwipe(float x, float y, long time) {
+        float step = renderer.getBlockSize();
+        if (step <= 0) return; // Not laid out yet
+        float dx = x - anchorX;
+        float dy = y - anchorY;
+        if (swipeAxis == AXIS_NONE) {
+            // Half a block of slop, then the gesture sticks to its dominant axis
+            if (Math.abs(dx) < step / 2 && Math.abs(dy) < step / 2) return;
+            swipeAxis = Math.abs(dx) >= Math.abs(dy) ? AXIS_HORIZONTAL : AXIS_VERTICAL;
+        }
+        if (swipeAxis == AXIS_HORIZONTAL) {
+            for (; x - anchorX >= step; anchorX += step) queue.offer(Input.MOVE_RIGHT, time);
+            for (; anchorX - x >= step; anchorX -= step) queue.offer(Input.MOVE_LEFT, time);
+        } else {
+            for (; y - anchorY >= step; anchorY += step) queue.offer(Input.MOVE_DOWN, time);
+            if (!swipeRotated && anchorY - y > SWIPE_THRESHOLD) { // Swipe up rotates, once per gesture
+                queue.offer(Input.ROTATE, time);
+                swipeRotated = true;
+            }
+        }
+    }
+
+    private int buttonAt(float x, float y) {
+        if (contains(renderer.getLeftButton(), x, y)) return Input.MOVE_LEFT;
+        if (contains(renderer.getRightButton(), x, y)) return Input.MOVE_RIGHT;
+        if (contains(renderer.getRotateButton(), x, y)) return Input.ROTATE;
+        if (contains(renderer.getDownButton(), x, y)) return Input.MOVE_DOWN;
+        if (contains(renderer.getHardDropButton(), x, y)) return Input.HARD_DROP;
+        return Input.NONE;
+    }
+
+    // Moves repeat while held; rotating and hard dropping happen once per press
+    private static boolean repeats(int input) {
+        return input == Input.MOVE_LEFT || input == Input.MOVE_RIGHT || input == Input.MOVE_DOWN;
+    }
+
+    /**
+     * Returns the action bound to the key, {@link #QUEUED} or {@link #NONE}. Game keys are
+     * only queued when {@code playing}; OS key repeats are ignored in favour of DAS/ARR.
+     */
+    int onKeyDown(KeyEvent event, boolean playing) {
+        int input = keyInput(event.getKeyCode());
+        if (input != Input.NONE) {
+            if (!playing) return NONE;
+            if (event.getRepeatCount() == 0) {
+                queue.offer(input, event.getEventTime());
+                if (repeats(input)) autoRepeat.press(input, event.getEventTime());
+            }
+            return QUEUED;
+        }
+        switch (event.getKeyCode()) {
+            case KeyEvent.KEYCODE_A:
+                return TOGGLE_AUTOPLAY;
+            case KeyEvent.KEYCODE_R:
+                return PLAY_REPLAY;
+            case KeyEvent.KEYCODE_M:
+                return TOGGLE_METRICS;
+            case KeyEvent.KEYCODE_D:
+                return DUMP_METRICS;
+            case KeyEvent.KEYCODE_V:
+                return START_VERSUS;
+            case KeyEvent.KEYCODE_B:
+                return CYCLE_BOARD_SIZE;
+            case KeyEvent.KEYCODE_P:
+                return START_PUZZLE;
+        }
+        return NONE;
+    }
+
+    /** Returns true if the key was a game key, whose auto-repeat now stops. */
+    boolean onKeyUp(KeyEvent event) {
+        int input = keyInput(event.getKeyCode());
+        autoRepeat.release(input);
+        return input != Input.NONE;
+    }
+
+    private static int keyInput(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                return Input.MOVE_LEFT;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                return Input.MOVE_RIGHT;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                return Input.MOVE_DOWN;
+            case KeyEvent.KEYCODE_DPAD_UP:
+                return Input.ROTATE;
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+            case KeyEvent.KEYCODE_SPACE:
+                return Input.HARD_DROP;
+        }
+        return Input.NONE;
+    }
+
+    /** True for the actions that start another mode, which only work from the start screen. */
+    static boolean isStartScreenAction(int action) {
+        return action == PLAY_REPLAY || action == START_VERSUS || action == CYCLE_BOARD_SIZE || action == START_PUZZLE;
+    }
+
+    /** True for debug actions, which work on every screen, even during a replay. */
+    static boolean isDebugAction(int action) {
+        return action == TOGGLE_METRICS || action == DUMP_METRICS;
+    }
+
+    private static boolean contains(RectF button, float x, float y) {
+        return button != null && button.contains(x, y); // Null until the first layout
+    }
+}
@@ -0,0 +1,571 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.GameState;
+import com.example.myapplication.engine.Pieces;
+import com.example.myapplication.engine.StatsStore;
+import com.example.myapplication.engine.SyncDecoder;
+import com.example.myapplication.engine.Viewport;
+
+/**
+ * Draws one frame of the game onto a Canvas, on TetrisSurfaceView's render thread.
+ * Everything used while drawing is allocated up front in the constructor or in
+ * {@link #setSize}, and again only when a game on a board of another size starts.
+ *
+ * <p>Boards taller than the screen are drawn through a {@link Viewport} that follows the
+ * falling piece: only the visible rows are visited, so a frame costs the same whatever
+ * the board's height.
+ *
+ * <p>Blocks are not drawn as flat rectangles but copied from an atlas holding one bevelled
+ * tile per colour, rasterized once per layout. Settled blocks are drawn into a board-layer
+ * bitmap that is only redrawn when the board's {@link Board#version()} changes or the view
+ * scrolls, so a frame draws the whole stack with a single bitmap, however full it is.
+ */
+final class TetrisRenderer {
+    // Rows shown before a taller board starts to scroll
+    private static final int MAX_VISIBLE_ROWS = GameEngine.BOARD_HEIGHT;
+
+    // Indexed by shape type, in the same order as GameEngine.SHAPES, then Board.GARBAGE - 1
+    private static final int[] COLORS = {
+            Color.CYAN, Color.YELLOW, Color.MAGENTA, Color.parseColor("#FFA500"),
+            Color.BLUE, Color.GREEN, Color.RED, Color.GRAY
+    };
+    // UI colors, parsed once instead of on every frame
+    private static final int BACKGROUND_TOP = Color.parseColor("#1E1E1E");
+    private static final int BACKGROUND_BOTTOM = Color.parseColor("#3E3E3E");
+    private static final int START_BUTTON_COLOR = Color.parseColor("#FF9800");
+    private static final int CONTROL_BUTTON_COLOR = Color.parseColor("#4CAF50");
+    private static final int OVERLAY_COLOR = Color.parseColor("#AA000000");
+    private static final int RETRY_BUTTON_COLOR = Color.parseColor("#FF5722");
+    private static final int OPPONENT_BOARD_COLOR = Color.parseColor("#CC000000");
+
+    // Member variables for UI elements to avoid repeated allocations in draw. Volatile, and
+    // replaced rather than changed, so input handling on another thread can hit-test them
+    private volatile RectF startButton;
+    private volatile RectF retryButton;
+    private volatile RectF leftButton;
+    private volatile RectF rightButton;
+    private volatile RectF rotateButton;
+    private volatile RectF downButton;
+    private volatile RectF hardDropButton;
+
+    // Member variables for drawing coordinates, calculated in setSize
+    private int width, height;
+    private float cx, cy; // Center X and Y for start/retry buttons
+    private float retryCx, retryCy; // Separate center for retry button if different
+    private int left, top, boardRight, boardBottom; // Coordinates for the game board
+    private int blockSize;
+    private volatile int publishedBlockSize; // blockSize, for other threads
+    private int boardCols = GameEngine.BOARD_WIDTH, boardRows = GameEngine.BOARD_HEIGHT;
+    private final Viewport viewport = new Viewport();
+    private String boardSizeText = boardCols + " × " + boardRows;
+    // Rebuilt only when the store publishes a new summary, not per frame
+    private StatsStore.Summary stats;
+    private String statsText = "";
+    private String rankText = "";
+    private String puzzleText = "";
+
+    // One tile per COLORS entry side by side, and the settled blocks drawn from it
+    private Bitmap atlas;
+    private Bitmap boardLayer;
+    private Canvas layerCanvas;
+    private final Rect tileSource = new Rect();
+    private final RectF tileTarget = new RectF();
+    // What boardLayer currently shows; a different version or scroll redraws it. Versions are
+    // compared across boards, as snapshots of one game share them
+    private boolean layerValid;
+    private int layerVersion, layerTop;
+    private final Rect layerSource = new Rect();
+    private final RectF layerTarget = new RectF();
+
+    private Effects effects; // Null to draw without effects
+    private final char[] popupText = new char[11]; // "+" and up to ten digits
+
+    private final Paint blockPaint, boardPaint, shadowPaint, textPaint, backgroundPaint, ghostPaint, effectPaint;
+    // "Score: " followed by the digits, rewritten in place only when the score changes
+    private static final String SCORE_PREFIX = "Score: ";
+    private final char[] scoreText = new char[SCORE_PREFIX.length() + 10];
+    private int scoreTextLength;
+    private int shownScore = -1;
+
+    TetrisRenderer() {
+        blockPaint = new Paint();
+        boardPaint = new Paint();
+        boardPaint.setColor(Color.parseColor("#333333"));
+        boardPaint.setStyle(Paint.Style.FILL);
+
+        shadowPaint = new Paint();
+        shadowPaint.setColor(Color.parseColor("#40000000")); // Semi-transparent black for shadow
+        shadowPaint.setStyle(Paint.Style.FILL);
+
+        textPaint = new Paint();
+        textPaint.setColor(Color.WHITE);
+        textPaint.setAntiAlias(true);
+
+        backgroundPaint = new Paint(); // Shader is attached in setSize
+
+        ghostPaint = new Paint(); // Outline of where the piece will land
+        ghostPaint.setStyle(Paint.Style.STROKE);
+        ghostPaint.setStrokeWidth(3);
+        ghostPaint.setAntiAlias(true);
+
+        effectPaint = new Paint(); // Colour and alpha are set per effect
+        effectPaint.setAntiAlias(true);
+        popupText[0] = '+';
+        SCORE_PREFIX.getChars(0, SCORE_PREFIX.length(), scoreText, 0);
+    }
+
+    /** Size of a board cell in pixels; may be read on any thread. */
+    int getBlockSize() {
+        return publishedBlockSize;
+    }
+
+    RectF getStartButton() {
+        return startButton;
+    }
+
+    RectF getRetryButton() {
+        return retryButton;
+    }
+
+    RectF getLeftButton() {
+        return leftButton;
+    }
+
+    RectF getRightButton() {
+        return rightButton;
+    }
+
+    RectF getRotateButton() {
+        return rotateButton;
+    }
+
+    RectF getDownButton() {
+        return downButton;
+    }
+
+    RectF getHardDropButton() {
+        return hardDropButton;
+    }
+
+    /** Lays out the board and buttons for a surface of w x h pixels. */
+    void setSize(int w, int h) {
+        width = w;
+        height = h;
+        layout();
+    }
+
+    /** Draws {@code effects} over the board from now on; the caller updates them before each frame. */
+    void setEffects(Effects effects) {
+        this.effects = effects;
+    }
+
+    /** Shows the best score and games played from {@code summary} on the start and game over screens. */
+    void setStats(StatsStore.Summary summary) {
+        if (summary == stats) return;
+        stats = summary;
+        statsText = summary.getGames() == 0 ? "" : "Kỷ lục " + summary.getBestScore() + " · " + summary.getGames() + " ván";
+    }
+
+    /** Shows {@code text} about the loaded puzzle on the start screen; empty for a normal game. */
+    void setPuzzleText(String text) {
+        puzzleText = text;
+    }
+
+    /** Sets the leaderboard place, from 0, of the game that just ended, or -1 if it did not place. */
+    void setGameOverRank(int rank) {
+        rankText = rank == 0 ? "Kỷ lục mới!" : rank > 0 ? "Hạng " + (rank + 1) : "";
+    }
+
+    // Lays the board out for a game on a cols x rows board; draw() calls this when the size changes
+    private void setBoardSize(int cols, int rows) {
+        boardCols = cols;
+        boardRows = rows;
+        boardSizeText = cols + " × " + rows;
+        if (width > 0) layout();
+    }
+
+    private void layout() {
+        int w = width, h = height;
+        // Columns always fit across; tall boards show MAX_VISIBLE_ROWS rows and scroll
+        blockSize = Math.max(1, Math.min((w - 100) / boardCols, (h - 600) / Math.min(boardRows, MAX_VISIBLE_ROWS)));
+        viewport.setSize(boardRows, (h - 600) / blockSize);
+        textPaint.setTextSize(blockSize);
+
+        // The background gradient depends only on the height, so build it here once
+        backgroundPaint.setShader(new LinearGradient(0, 0, 0, h,
+                BACKGROUND_TOP, BACKGROUND_BOTTOM, Shader.TileMode.CLAMP));
+
+        // Calculate and initialize RectF objects and drawing coordinates here
+        // Start Button
+        float btnWidth = blockSize * 8;
+        float btnHeight = blockSize * 2;
+        cx = w / 2f;
+        cy = h / 2f + blockSize * 2;
+        startButton = new RectF(cx - btnWidth / 2, cy - btnHeight / 2, cx + btnWidth / 2, cy + btnHeight / 2);
+
+        // Retry Button (assuming same position as start button for simplicity)
+        float retryBtnWidth = blockSize * 5;
+        float retryBtnHeight = blockSize * 2;
+        retryCx = w / 2f; // Can be different if you want
+        retryCy = h / 2f + blockSize * 2; // Can be different if you want
+        retryButton = new RectF(retryCx - retryBtnWidth / 2, retryCy - retryBtnHeight / 2, retryCx + retryBtnWidth / 2, retryCy + retryBtnHeight / 2);
+
+        // Game Board dimensions
+        left = 50;
+        top = 50;
+        boardRight = left + boardCols * blockSize;
+        boardBottom = top + viewport.visibleRows() * blockSize;
+
+        // Control Buttons
+        float btnTop = boardBottom + blockSize * 2;
+        // Five buttons must fit across, which on narrow screens makes them a little smaller
+        float btnSize = Math.min(blockSize * 2, (w - 2 * left - 4 * 20) / 5f);
+        // Initialize RectF objects for control buttons
+        leftButton = new RectF(left, btnTop, left + btnSize, btnTop + btnSize);
+        rightButton = new RectF(left + btnSize + 20, btnTop, left + 2 * btnSize + 20, btnTop + btnSize);
+        rotateButton = new RectF(left + 2 * (btnSize + 20), btnTop, left + 3 * btnSize + 40, btnTop + btnSize);
+        downButton = new RectF(left + 3 * (btnSize + 20), btnTop, left + 4 * btnSize + 60, btnTop + btnSize);
+        hardDropButton = new RectF(left + 4 * (btnSize + 20), btnTop, left + 5 * btnSize + 80, btnTop + btnSize);
+
+        publishedBlockSize = blockSize;
+        buildAtlas();
+        boardLayer = Bitmap.createBitmap(boardCols * blockSize, viewport.visibleRows() * blockSize, Bitmap.Config.ARGB_8888);
+        layerCanvas = new Canvas(boardLayer);
+        layerValid = false; // Redraw on the next frame
+    }
+
+    // Rasterizes a bevelled, shaded tile for every colour, with the same 2px gap blocks always had
+    private void buildAtlas() {
+        atlas = Bitmap.createBitmap(blockSize * COLORS.length, blockSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Paint edge = new Paint();
+        float bevel = Math.max(1, blockSize / 8f);
+        for (int i = 0; i < COLORS.length; i++) {
+            float l = i * blockSize + 2, t = 2, r = (i + 1) * blockSize - 2, b = blockSize - 2;
+            fill.setShader(new LinearGradient(0, t, 0, b, blend(COLORS[i], Color.WHITE, 0.35f),
+                    blend(COLORS[i], Color.BLACK, 0.2f), Shader.TileMode.CLAMP));
+            canvas.drawRect(l, t, r, b, fill);
+            edge.setColor(0x66FFFFFF); // Light from the top left
+            canvas.drawRect(l, t, r, t + bevel, edge);
+            canvas.drawRect(l, t + bevel, l + bevel, b, edge);
+            edge.setColor(0x66000000);
+            canvas.drawRect(l + bevel, b - bevel, r, b, edge);
+            canvas.drawRect(r - bevel, t + bevel, r, b - bevel, edge);
+        }
+    }
+
+    private static int blend(int color, int toward, float amount) {
+        return Color.rgb(
+                (int) (Color.red(color) + (Color.red(toward) - Color.red(color)) * amount),
+                (int) (Color.green(color) + (Color.green(toward) - Color.green(color)) * amount),
+                (int) (Color.blue(color) + (Color.blue(toward) - Color.blue(color)) * amount));
+    }
+
+    // Copies the tile for cell value (shape type + 1) to (x, y)
+    private void drawTile(Canvas canvas, int value, float x, float y) {
+        tileSource.set((value - 1) * blockSize, 0, value * blockSize, blockSize);
+        tileTarget.set(x, y, x + blockSize, y + blockSize);
+        canvas.drawBitmap(atlas, tileSource, tileTarget, null);
+    }
+
+    // Redraws the settled blocks of rows viewTop onwards if they changed since the last frame
+    private void updateBoardLayer(Board board, int viewTop) {
+        if (layerValid && board.version() == layerVersion && viewTop == layerTop) return;
+        layerValid = true;
+        layerVersion = board.version();
+        layerTop = viewTop;
+        boardLayer.eraseColor(Color.TRANSPARENT);
+        for (int y = Math.max(viewTop, board.stackTop()); y < viewport.bottom(); y++) {
+            if (board.rowMask(y) == 0) continue; // Skip empty rows
+            for (int x = 0; x < boardCols; x++) {
+                int cell = board.get(x, y);
+                if (cell > 0) drawTile(layerCanvas, cell, x * blockSize, (y - viewTop) * blockSize);
+            }
+        }
+    }
+
+    // Draws the board layer in bands, each lifted by the cleared rows it still has to fall into
+    private void drawCollapsingLayer(Canvas canvas, int viewTop, int bands) {
+        for (int k = 0; k < bands; k++) {
+            int from = Math.max(effects.bandStart(k), viewTop) - viewTop;
+            int to = Math.min(effects.bandEnd(k), viewport.bottom()) - viewTop;
+            if (from >= to) continue;
+            float shift = effects.bandShift(k) * blockSize;
+            layerSource.set(0, from * blockSize, boardLayer.getWidth(), to * blockSize);
+            layerTarget.set(left, top + from * blockSize + shift, left + boardLayer.getWidth(), top + to * blockSize + shift);
+            canvas.drawBitmap(boardLayer, layerSource, layerTarget, null);
+        }
+    }
+
+    // Hard-drop trails, fading streaks from where each cell started to where it landed
+    private void drawTrails(Canvas canvas, float originY) {
+        for (int i = 0; i < effects.count(); i++) {
+            if (effects.kind(i) != Effects.TRAIL) continue;
+            int[] cellsX = Pieces.cellsX(effects.type(i), effects.rotation(i));
+            int[] cellsY = Pieces.cellsY(effects.type(i), effects.rotation(i));
+            effectPaint.setColor(COLORS[effects.type(i)]);
+            effectPaint.setAlpha((int) (96 * (1 - effects.progress(i))));
+            for (int c = 0; c < Pieces.CELLS; c++) {
+                float bx = left + (effects.x(i) + cellsX[c]) * blockSize;
+                float landed = originY + (effects.y(i) + cellsY[c]) * blockSize;
+                canvas.drawRect(bx + 2, landed - effects.value(i) * blockSize, bx + blockSize - 2, landed, effectPaint);
+            }
+        }
+    }
+
+    // Flashes, particles and score pop-ups, over the pieces
+    private void drawEffects(Canvas canvas, float originY) {
+        for (int i = 0; i < effects.count(); i++) {
+            float fade = 1 - effects.progress(i);
+            switch (effects.kind(i)) {
+                case Effects.ROW_FLASH: {
+                    float by = originY + effects.y(i) * blockSize;
+                    effectPaint.setColor(Color.WHITE);
+                    effectPaint.setAlpha((int) (220 * fade));
+                    canvas.drawRect(left, by, boardRight, by + blockSize, effectPaint);
+                    break;
+                }
+                case Effects.LOCK_FLASH: {
+                    int[] cellsX = Pieces.cellsX(effects.type(i), effects.rotation(i));
+                    int[] cellsY = Pieces.cellsY(effects.type(i), effects.rotation(i));
+                    effectPaint.setColor(Color.WHITE);
+                    effectPaint.setAlpha((int) (150 * fade));
+                    for (int c = 0; c < Pieces.CELLS; c++) {
+                        float bx = left + (effects.x(i) + cellsX[c]) * blockSize;
+                        float by = originY + (effects.y(i) + cellsY[c]) * blockSize;
+                        canvas.drawRect(bx + 2, by + 2, bx + blockSize - 2, by + blockSize - 2, effectPaint);
+                    }
+                    break;
+                }
+                case Effects.SCORE: {
+                    int length = formatPopup(effects.value(i));
+                    float rise = effects.progress(i) * 1.5f * blockSize;
+                    textPaint.setTextSize(blockSize * 0.8f);
+                    textPaint.setColor(Color.YELLOW);
+                    textPaint.setAlpha((int) (255 * fade));
+                    canvas.drawText(popupText, 0, length, left + effects.x(i) * blockSize, originY + effects.y(i) * blockSize - rise, textPaint);
+                    textPaint.setColor(Color.WHITE);
+                    break;
+                }
+            }
+        }
+        float size = blockSize / 5f;
+        for (int p = 0; p < effects.particleCount(); p++) {
+            float px = left + effects.particleX(p) * blockSize;
+            float py = originY + effects.particleY(p) * blockSize;
+            effectPaint.setColor(COLORS[effects.particleColor(p) - 1]);
+            effectPaint.setAlpha((int) (255 * (1 - effects.particleProgress(p))));
+            canvas.drawRect(px - size, py - size, px + size, py + size, effectPaint);
+        }
+    }
+
+    // Writes "+points" into popupText and returns its length
+    private int formatPopup(int points) {
+        int digits = 1;
+        for (int v = points; v >= 10; v /= 10) digits++;
+        for (int i = digits, v = points; i >= 1; i--, v /= 10) {
+            popupText[i] = (char) ('0' + v % 10);
+        }
+        return digits + 1;
+    }
+
+    // Formats the score into scoreText without going through String
+    private void updateScoreText(int score) {
+        if (score == shownScore) return;
+        shownScore = score;
+        int digits = 1;
+        for (int v = score; v >= 10; v /= 10) digits++;
+        scoreTextLength = SCORE_PREFIX.length() + digits;
+        int v = score;
+        for (int i = scoreTextLength - 1; i >= SCORE_PREFIX.length(); i--) {
+            scoreText[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+
+    /**
+     * Draws a full frame. {@code fallOffset} is how many rows (0 to 1) the falling piece is
+     * drawn below its logical position, used to interpolate between gravity ticks.
+     */
+    void draw(Canvas canvas, GameState engine, boolean isStartScreen, float fallOffset) {
+        Board board = engine.getBoard();
+        if (board.width() != boardCols || board.height() != boardRows) setBoardSize(board.width(), board.height());
+
+        // The gradient covers the whole surface, so no separate clear is needed
+        canvas.drawRect(0, 0, width, height, backgroundPaint);
+
+        if (isStartScreen) {
+            // Draw start screen elements
+            textPaint.setTextSize(blockSize * 1.5f);
+            textPaint.setColor(Color.WHITE);
+            canvas.drawText("Tetris", width / 2f - blockSize * 2, height / 3f, textPaint);
+            textPaint.setTextSize(blockSize * 0.8f);
+            canvas.drawText(boardSizeText, width / 2f - blockSize * 2, height / 3f + blockSize * 1.5f, textPaint);
+            canvas.drawText(statsText, width / 2f - blockSize * 2, height / 3f + blockSize * 2.5f, textPaint);
+            canvas.drawText(puzzleText, width / 2f - blockSize * 2, height / 3f + blockSize * 3.5f, textPaint);
+
+            blockPaint.setColor(START_BUTTON_COLOR); // Orange color for button
+            if (startButton != null) { // Null check for safety
+                canvas.drawRoundRect(startButton, 30, 30, blockPaint);
+            }
+
+            textPaint.setTextSize(blockSize);
+            textPaint.setColor(Color.BLACK);
+            // Use member variables cx and cy for text positioning
+            canvas.drawText("Bắt đầu chơi", cx - blockSize * 2.5f, cy + blockSize / 3f, textPaint);
+            return; // Stop drawing here if it's the start screen
+        }
+
+        // Draw the game board background and shadow
+        canvas.drawRect(left, top, boardRight, boardBottom, shadowPaint);
+        canvas.drawRect(left, top, boardRight, boardBottom, boardPaint);
+
+        // Only the rows in view are visited; the camera keeps the falling piece in them
+        if (!engine.isGameOver()) viewport.follow(engine);
+        int viewTop = viewport.top();
+        float originY = top - viewTop * (float) blockSize; // Screen y of board row 0
+        canvas.save();
+        canvas.clipRect(left, top, boardRight, boardBottom); // Pieces half out of view are cut off
+
+        // Draw existing blocks on the board, redrawn into the layer only when they changed
+        updateBoardLayer(board, viewTop);
+        int bands = effects != null ? effects.collapseBands() : 0;
+        if (bands == 0) {
+            canvas.drawBitmap(boardLayer, left, top, null);
+        } else {
+            drawCollapsingLayer(canvas, viewTop, bands);
+        }
+        if (effects != null) drawTrails(canvas, originY);
+
+        // Draw the ghost piece where a hard drop would land, under the falling shape
+        int shapeType = engine.getShapeType();
+        int[] cellsX = Pieces.cellsX(shapeType, engine.getRotation());
+        int[] cellsY = Pieces.cellsY(shapeType, engine.getRotation());
+        if (!engine.isGameOver()) {
+            int ghostY = engine.getGhostY();
+            ghostPaint.setColor(COLORS[shapeType]);
+            for (int i = 0; i < Pieces.CELLS; i++) {
+                float bx = left + (engine.getShapeX() + cellsX[i]) * blockSize;
+                float by = originY + (ghostY + cellsY[i]) * blockSize;
+                canvas.drawRect(bx + 3, by + 3, bx + blockSize - 3, by + blockSize - 3, ghostPaint);
+            }
+        }
+
+        // Draw the current falling shape
+        for (int i = 0; i < Pieces.CELLS; i++) {
+            float bx = left + (engine.getShapeX() + cellsX[i]) * blockSize;
+            float by = originY + (engine.getShapeY() + cellsY[i] + fallOffset) * blockSize;
+            drawTile(canvas, shapeType + 1, bx, by);
+        }
+        if (effects != null) drawEffects(canvas, originY);
+        canvas.restore();
+
+        // Draw score text
+        textPaint.setColor(Color.WHITE);
+        updateScoreText(engine.getScore());
+        canvas.drawText(scoreText, 0, scoreTextLength, left, boardBottom + blockSize, textPaint);
+
+        // Draw control buttons
+        blockPaint.setColor(CONTROL_BUTTON_COLOR); // Green color for buttons
+        if (leftButton != null) canvas.drawRoundRect(leftButton, 20, 20, blockPaint);
+        if (rightButton != null) canvas.drawRoundRect(rightButton, 20, 20, blockPaint);
+        if (rotateButton != null) canvas.drawRoundRect(rotateButton, 20, 20, blockPaint);
+        if (downButton != null) canvas.drawRoundRect(downButton, 20, 20, blockPaint);
+        if (hardDropButton != null) canvas.drawRoundRect(hardDropButton, 20, 20, blockPaint);
+
+        // Draw button icons/text (using float for division)
+        textPaint.setTextSize(blockSize);
+        if (leftButton != null) canvas.drawText("←", leftButton.left + leftButton.width() / 3f, leftButton.top + leftButton.height() * 2 / 3f, textPaint);
+        if (rightButton != null) canvas.drawText("→", rightButton.left + rightButton.width() / 3f, rightButton.top + rightButton.height() * 2 / 3f, textPaint);
+        if (rotateButton != null) canvas.drawText("↻", rotateButton.left + rotateButton.width() / 3f, rotateButton.top + rotateButton.height() * 2 / 3f, textPaint);
+        if (downButton != null) canvas.drawText("↓", downButton.left + downButton.width() / 3f, downButton.top + downButton.height() * 2 / 3f, textPaint);
+        if (hardDropButton != null) canvas.drawText("⤓", hardDropButton.left + hardDropButton.width() / 3f, hardDropButton.top + hardDropButton.height() * 2 / 3f, textPaint);
+
+
+        if (engine.isGameOver()) {
+            // Draw game over overlay
+            blockPaint.setColor(OVERLAY_COLOR); // Semi-transparent black overlay
+            canvas.drawRect(0, 0, width, height, blockPaint);
+
+            textPaint.setTextSize(blockSize * 1.5f);
+            canvas.drawText("Game Over", width / 2f - blockSize * 3, height / 2f - blockSize, textPaint);
+            textPaint.setTextSize(blockSize * 0.7f);
+            canvas.drawText(rankText, width / 2f - blockSize * 3, height / 2f - blockSize * 0.1f, textPaint);
+            canvas.drawText(statsText, width / 2f - blockSize * 3, height / 2f + blockSize * 0.7f, textPaint);
+
+            blockPaint.setColor(RETRY_BUTTON_COLOR); // Red color for retry button
+            if (retryButton != null) { // Null check for safety
+                canvas.drawRoundRect(retryButton, 30, 30, blockPaint);
+            }
+
+            textPaint.setTextSize(blockSize);
+            textPaint.setColor(Color.WHITE);
+            // Use member variables retryCx and retryCy for text positioning
+            canvas.drawText("Chơi lại", retryCx - blockSize * 1.5f, retryCy + blockSize / 3f, textPaint);
+        }
+    }
+
+    /**
+     * Draws a versus opponent's board a quarter size in the top-right corner of ours, and the
+     * garbage waiting to land on ours as a red bar along its left edge. Call after {@link #draw}.
+     */
+    void drawOpponent(Canvas canvas, SyncDecoder opponent, int pendingGarbage) {
+        if (!opponent.isPaired()) {
+            textPaint.setTextSize(blockSize);
+            textPaint.setColor(Color.WHITE);
+            canvas.drawText("Đang chờ đối thủ…", left + blockSize, top + blockSize * 4, textPaint);
+            return;
+        }
+        Board board = opponent.board();
+        float cell = blockSize / 4f;
+        float right = boardRight - cell;
+        float x0 = right - board.width() * cell;
+        float y0 = top + cell;
+        blockPaint.setColor(OPPONENT_BOARD_COLOR);
+        canvas.drawRect(x0, y0, right, y0 + board.height() * cell, blockPaint);
+
+        for (int y = board.stackTop(); y < board.height(); y++) {
+            if (board.rowMask(y) == 0) continue;
+            for (int x = 0; x < board.width(); x++) {
+                int value = board.get(x, y);
+                if (value == 0) continue;
+                blockPaint.setColor(COLORS[value - 1]);
+                canvas.drawRect(x0 + x * cell, y0 + y * cell, x0 + (x + 1) * cell, y0 + (y + 1) * cell, blockPaint);
+            }
+        }
+        int type = opponent.pieceType();
+        if (type >= 0) {
+            int[] cellsX = Pieces.cellsX(type, opponent.rotation());
+            int[] cellsY = Pieces.cellsY(type, opponent.rotation());
+            blockPaint.setColor(COLORS[type]);
+            for (int i = 0; i < Pieces.CELLS; i++) {
+                int y = opponent.pieceY() + cellsY[i];
+                if (y < 0) continue; // Above the board
+                float bx = x0 + (opponent.pieceX() + cellsX[i]) * cell;
+                canvas.drawRect(bx, y0 + y * cell, bx + cell, y0 + (y + 1) * cell, blockPaint);
+            }
+        }
+        if (opponent.isToppedOut()) {
+            blockPaint.setColor(OVERLAY_COLOR);
+            canvas.drawRect(x0, y0, right, y0 + board.height() * cell, blockPaint);
+        }
+
+        if (pendingGarbage > 0) {
+            blockPaint.setColor(Color.RED);
+            float barTop = boardBottom - Math.min(pendingGarbage, viewport.visibleRows()) * blockSize;
+            canvas.drawRect(left - cell, barTop, left, boardBottom, blockPaint);
+        }
+    }
+}
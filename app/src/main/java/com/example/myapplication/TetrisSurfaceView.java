@@ -0,0 +1,355 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.Nullable;
+
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.InputQueue;
+import com.example.myapplication.engine.StatsStore;
+
+import java.io.File;
+
+/**
+ * Game view that simulates and renders on two dedicated threads instead of the UI thread.
+ *
+ * <p>The game runs in a {@link GameLoop}, which owns the engine and ticks gravity exactly
+ * {@code DROP_DELAY_NANOS} apart whatever the frames do; the AI, replays, versus syncing and
+ * stats all run there too. The render thread is paced by {@link Choreographer}, so it draws
+ * once per vsync at whatever rate the panel runs, always the newest snapshot the loop
+ * published, with the falling piece drawn part of the way towards its next row between
+ * ticks. Input arrives on the UI thread, goes through {@link TetrisControls} for auto-repeat,
+ * and is handed to the loop through its lock-free queue. No thread ever waits on another: a
+ * slow frame delays neither gravity nor input.
+ */
+public class TetrisSurfaceView extends SurfaceView implements GameView, SurfaceHolder.Callback, Choreographer.FrameCallback {
+    private static final String TAG = "TetrisSurfaceView";
+    private static final long DROP_DELAY_NANOS = 1_000_000_000L; // 1000ms drop
+    private static final long IDLE_POLL_MILLIS = 100; // How often a static screen checks for a new frame
+    private static final String METRICS_FILE = "metrics.txt";
+    private static final long SEND_RETRY_MILLIS = 4; // How soon to retry moves the loop had no room for
+
+    private final GameLoop.Host host = new GameLoop.Host() {
+        @Override
+        public File filesDir() {
+            return getContext().getFilesDir();
+        }
+
+        @Override
+        public StatsStore stats() {
+            return stats;
+        }
+
+        @Override
+        public void warn(String message, Throwable error) {
+            Log.w(TAG, message, error);
+        }
+    };
+    private final StatsStore stats = GameStats.get(getContext());
+    private final GameLoop loop = new GameLoop(DROP_DELAY_NANOS, host);
+    // Confined to the render thread, except for hit-testing its buttons, which it allows
+    private final TetrisRenderer renderer = new TetrisRenderer();
+    private final PerfMetrics metrics = new PerfMetrics(); // Render thread only; toggle with M, dump with D
+    private final TetrisControls controls = new TetrisControls(renderer); // UI thread only
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+    private Choreographer choreographer; // Belongs to renderThread's looper
+    private volatile boolean running;
+    private volatile boolean paused = true; // The loop is stopped, so the screen is static
+    private GameLoop.Frame drawnFrame; // Render thread only; null when the surface needs a full redraw
+    private GameLoop.Frame seenFrame; // Render thread only: the last frame acquired, drawn or not
+    private int shownRank = -1; // Render thread only
+    private long recordedTicks; // Render thread only: gravity ticks already in the metrics
+
+    // The stats store loads and adds games on its own thread; the next frame redraws them
+    private volatile boolean statsChanged;
+    private final StatsStore.Listener statsListener = summary -> statsChanged = true;
+
+    public TetrisSurfaceView(Context context) {
+        super(context);
+        init();
+    }
+
+    public TetrisSurfaceView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    private void init() {
+        getHolder().addCallback(this);
+        setFocusable(true);
+        setFocusableInTouchMode(true);
+        requestFocus();
+    }
+
+    @Override
+    public byte[] saveState() {
+        return loop.saveState(); // Called after pause(), with the loop stopped
+    }
+
+    @Override
+    public boolean restoreState(byte[] state) {
+        // A save read from disk can arrive after resume(); it only replaces the start screen
+        if (!loop.isStartScreen()) return false;
+        boolean running = !paused;
+        if (running) loop.stop();
+        boolean restored = loop.restoreState(state);
+        if (running) loop.start();
+        return restored;
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+        handler.removeCallbacks(inputTick);
+        controls.reset(); // Keys released in the background never send key up
+        loop.stop();
+    }
+
+    @Override
+    public void resume() {
+        paused = false;
+        loop.start(); // The first drop comes a full delay after coming back
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        stats.addListener(statsListener);
+        statsChanged = true; // Picks up a summary that changed before the listener was added
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        stats.removeListener(statsListener); // The store outlives the activity
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        running = true;
+        renderThread = new HandlerThread("TetrisRender");
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        renderHandler.post(() -> {
+            drawnFrame = null;
+            choreographer = Choreographer.getInstance();
+            choreographer.postFrameCallback(this);
+        });
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        renderHandler.post(() -> {
+            renderer.setSize(width, height);
+            drawnFrame = null;
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface must not be touched once this returns, so wait for the thread to exit
+        running = false;
+        renderThread.quit();
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+        renderHandler = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        long start = System.nanoTime();
+        GameLoop.Frame frame = loop.latestFrame(); // Ours until the next frame
+        if (frame != seenFrame) {
+            seenFrame = frame;
+            recordLoopMetrics(frame);
+        }
+        boolean animating = frame.effects.update(frameTimeNanos);
+        boolean restats = statsChanged;
+        statsChanged = false;
+        // A start screen, game over, wait for an opponent or paused game already drawn stays as
+        // it is: poll for a new frame a few times a second instead of redrawing at every vsync
+        if (frame == drawnFrame && !animating && !restats && !metrics.isOverlayVisible()
+                && (paused || frame.startScreen || frame.game.isGameOver() || frame.waitingForOpponent)) {
+            choreographer.postFrameCallbackDelayed(this, IDLE_POLL_MILLIS);
+            return;
+        }
+        SurfaceHolder holder = getHolder();
+        Canvas canvas = holder.lockCanvas();
+        if (canvas != null) {
+            try {
+                drawnFrame = frame;
+                renderer.setEffects(frame.effects);
+                renderer.setStats(stats.summary());
+                renderer.setPuzzleText(frame.puzzleText);
+                if (frame.gameOverRank != shownRank) {
+                    shownRank = frame.gameOverRank;
+                    renderer.setGameOverRank(shownRank);
+                }
+                float fallOffset = 0;
+                if (!frame.startScreen && !frame.replaying && !frame.waitingForOpponent && frame.game.canMoveDown()) {
+                    // Part of the way towards the next row, by how much of the drop delay has passed
+                    float left = (frame.nextGravityNanos - frameTimeNanos) / (float) DROP_DELAY_NANOS;
+                    fallOffset = Math.max(0, Math.min(1, 1 - left));
+                }
+                renderer.draw(canvas, frame.game, frame.startScreen, fallOffset);
+                if (frame.opponent != null) renderer.drawOpponent(canvas, frame.opponent, frame.pendingGarbage);
+                metrics.drawOverlay(canvas, renderer.getBlockSize() * 0.6f);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            metrics.frameDrawn(start);
+        }
+        choreographer.postFrameCallback(this);
+    }
+
+    // The loop times its own ticks; a frame carries the latest, and the oldest input it shows
+    private void recordLoopMetrics(GameLoop.Frame frame) {
+        if (frame.inputMillis >= 0) metrics.inputReceived(frame.inputMillis);
+        if (frame.gravityTicks != recordedTicks) {
+            recordedTicks = frame.gravityTicks;
+            metrics.record(PerfMetrics.TICK, frame.tickNanos);
+            metrics.record(PerfMetrics.DROP_DRIFT, frame.driftNanos);
+        }
+    }
+
+    // Metrics belong to the render thread; without a surface there is nothing to show them on
+    private void onRenderThread(Runnable action) {
+        if (renderHandler != null) renderHandler.post(action);
+    }
+
+    // Runs as soon as moves are queued, and again whenever a held move is due to repeat
+    private final Runnable inputTick = this::sendInput;
+
+    /**
+     * Hands queued moves to the loop in order, then waits for the next auto-repeat, if any.
+     * Moves the loop has no room for stay queued and are sent again shortly.
+     */
+    private void sendInput() {
+        handler.removeCallbacks(inputTick);
+        if (!isPlaying()) {
+            controls.reset(); // Nothing left to move
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long nextTick = controls.pollRepeats(now);
+        InputQueue queue = controls.queue();
+        int next;
+        while ((next = queue.peek()) != Input.NONE) {
+            if (!loop.send(next, queue.peekTime())) {
+                nextTick = nextTick >= 0 ? Math.min(nextTick, now + SEND_RETRY_MILLIS) : now + SEND_RETRY_MILLIS;
+                break;
+            }
+            queue.poll();
+        }
+        if (nextTick >= 0) handler.postAtTime(inputTick, nextTick);
+    }
+
+    // Commands are one-off presses; if the loop has no room the press is lost, so say so
+    private void command(int code, long timeMillis) {
+        if (!loop.send(code, timeMillis)) Log.w(TAG, "Game loop input full, dropped command " + code);
+    }
+
+    // As of the last frame the loop published; the loop itself drops moves that come too late
+    private boolean isPlaying() {
+        return !loop.isStartScreen() && !loop.isGameOver() && !loop.isReplaying() && !loop.isWaitingForOpponent();
+    }
+
+    private void perform(int action) {
+        // A replay drives the engine by itself; only leaving it via retry is allowed
+        if (loop.isReplaying() && action != TetrisControls.RETRY && !TetrisControls.isDebugAction(action)) {
+            controls.reset();
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        switch (action) {
+            case TetrisControls.START:
+                command(GameLoop.START, now);
+                break;
+            case TetrisControls.RETRY:
+                controls.reset();
+                command(GameLoop.RETRY, now);
+                break;
+            case TetrisControls.QUEUED:
+                sendInput();
+                break;
+            case TetrisControls.TOGGLE_AUTOPLAY:
+                command(GameLoop.TOGGLE_AUTOPLAY, now);
+                break;
+            case TetrisControls.PLAY_REPLAY:
+                command(GameLoop.PLAY_REPLAY, now);
+                break;
+            case TetrisControls.START_VERSUS:
+                command(GameLoop.START_VERSUS, now);
+                break;
+            case TetrisControls.CYCLE_BOARD_SIZE:
+                command(GameLoop.CYCLE_BOARD_SIZE, now);
+                break;
+            case TetrisControls.START_PUZZLE:
+                command(GameLoop.START_PUZZLE, now);
+                break;
+            case TetrisControls.TOGGLE_METRICS:
+                onRenderThread(metrics::toggleOverlay);
+                break;
+            case TetrisControls.DUMP_METRICS:
+                File file = new File(getContext().getFilesDir(), METRICS_FILE);
+                onRenderThread(() -> metrics.dump(file));
+                break;
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int action = controls.onTouchEvent(event, loop.isStartScreen(), loop.isGameOver());
+        if (action != TetrisControls.NONE) {
+            perform(action);
+            performClick(); // For accessibility
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        int action = controls.onKeyDown(event, isPlaying());
+        if (TetrisControls.isDebugAction(action)) {
+            perform(action);
+            return true;
+        }
+        if (TetrisControls.isStartScreenAction(action)) {
+            if (!loop.isStartScreen()) return super.onKeyDown(keyCode, event); // Only from the start screen
+            perform(action);
+            return true;
+        }
+        if (loop.isGameOver() || loop.isStartScreen()) return super.onKeyDown(keyCode, event);
+        if (action != TetrisControls.NONE) {
+            perform(action);
+            return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        if (controls.onKeyUp(event)) return true;
+        return super.onKeyUp(keyCode, event);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.Input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EffectsTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void effects_startOnFirstFrameAndRetireOnTime() {
+        GameEngine engine = new GameEngine();
+        engine.reset(3);
+        Effects effects = new Effects(engine);
+        engine.addListener(effects);
+
+        effects.hardDrop();
+        engine.apply(Input.HARD_DROP);
+        assertEquals(2, effects.count()); // Trail and lock flash, not started yet
+        assertTrue(effects.update(1000 * MS));
+        assertEquals(0, effects.progress(0), 0);
+        assertTrue(effects.update(1100 * MS));
+        assertFalse(effects.update(1400 * MS));
+        assertEquals(0, effects.count());
+
+        // Spawning more than the pool holds drops the extra effects
+        for (int i = 0; i < Effects.MAX_EFFECTS * 2; i++) {
+            effects.onLock(0);
+        }
+        assertEquals(Effects.MAX_EFFECTS, effects.count());
+        effects.reset();
+        assertFalse(effects.update(2000 * MS));
+    }
+
+    @Test
+    public void effects_collapseBandsLiftRowsAboveClears() {
+        GameEngine engine = new GameEngine();
+        engine.reset(3);
+        Effects effects = new Effects(engine);
+        effects.onRowCleared(15);
+        effects.onRowCleared(18);
+        effects.onLock(2);
+        assertEquals(engine.getBoard().width() * 2, effects.particleCount());
+
+        effects.update(0);
+        assertEquals(3, effects.collapseBands());
+        // Rows under both clears stay; old row 16 is now 17 and old row 14 is now 16
+        assertEquals(19, effects.bandStart(0));
+        assertEquals(17, effects.bandStart(1));
+        assertEquals(19, effects.bandEnd(1));
+        assertEquals(17, effects.bandEnd(2));
+        assertEquals(-2, effects.bandShift(2), 0);
+        assertEquals(0, effects.bandShift(0), 0);
+
+        effects.update(175 * MS); // Halfway down
+        assertTrue(effects.bandShift(2) > -2 && effects.bandShift(2) < 0);
+        effects.update(250 * MS);
+        assertEquals(0, effects.collapseBands());
+        effects.update(600 * MS);
+        assertEquals(0, effects.particleCount());
+    }
+}
@@ -0,0 +1,869 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.AutoPlayer;
+import com.example.myapplication.engine.AutoRepeat;
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameRecord;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.GameSnapshot;
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.InputQueue;
+import com.example.myapplication.engine.InputRing;
+import com.example.myapplication.engine.PieceRandom;
+import com.example.myapplication.engine.Pieces;
+import com.example.myapplication.engine.Puzzle;
+import com.example.myapplication.engine.PuzzleSolver;
+import com.example.myapplication.engine.Replay;
+import com.example.myapplication.engine.ReplayRecorder;
+import com.example.myapplication.engine.StatsStore;
+import com.example.myapplication.engine.SyncDecoder;
+import com.example.myapplication.engine.SyncEncoder;
+import com.example.myapplication.engine.SyncProtocol;
+import com.example.myapplication.engine.TripleBuffer;
+import com.example.myapplication.engine.VersusLink;
+import com.example.myapplication.engine.VersusSession;
+import com.example.myapplication.engine.Viewport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the headless engine on the host JVM, no emulator needed.
+ */
+public class GameEngineTest {
+    private static final int[] I_ROW = {0b1111};
+    private static final int I = 0;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void board_detectsWallsFloorAndBlocks() {
+        Board board = new Board(10, 20);
+        assertFalse(board.collides(I_ROW, 0, 3, 0, 0));
+        assertTrue(board.collides(I_ROW, 0, 3, -1, 0));
+        assertTrue(board.collides(I_ROW, 0, 3, 7, 0));
+        assertTrue(board.collides(I_ROW, 0, 3, 0, 20));
+
+        board.place(I_ROW, 3, 19, 1);
+        assertTrue(board.collides(I_ROW, 0, 3, 0, 19));
+        assertFalse(board.collides(I_ROW, 0, 3, 0, 18));
+        assertEquals(1, board.get(3, 19));
+        assertEquals(0b1111000, board.rowMask(19));
+    }
+
+    @Test
+    public void board_clearsFullRowsAndShiftsDown() {
+        Board board = new Board(10, 20);
+        int[] full = {(int) board.fullRowMask()};
+        board.place(new int[]{0b1}, 0, 17, 3);
+        board.place(full, 0, 18, 1);
+        board.place(full, 0, 19, 2);
+
+        assertEquals(2, board.clearFullRows());
+        assertEquals(0b1, board.rowMask(19));
+        assertEquals(3, board.get(0, 19));
+        assertEquals(0, board.rowMask(18));
+    }
+
+    @Test
+    public void engine_sameSeedPlaysSameGame() {
+        GameEngine a = new GameEngine(new Random(42));
+        GameEngine b = new GameEngine(new Random(42));
+        for (int i = 0; i < 2000 && !a.isGameOver(); i++) {
+            a.moveDown();
+            b.moveDown();
+            assertEquals(a.getShapeType(), b.getShapeType());
+        }
+        assertTrue(a.isGameOver());
+        assertTrue(b.isGameOver());
+    }
+
+    @Test
+    public void engine_rotateKicksOffTheWall() {
+        GameEngine engine = new GameEngine(new Random(1));
+        while (engine.moveLeft()) { }
+        assertTrue(engine.rotate());
+        assertTrue(engine.canPlaceShape());
+    }
+
+    @Test
+    public void pieces_everyRotationStateHasFourCells() {
+        for (int type = 0; type < Pieces.COUNT; type++) {
+            for (int rot = 0; rot < Pieces.ROTATIONS; rot++) {
+                int[] rows = Pieces.rows(type, rot);
+                assertEquals(Pieces.boxSize(type), rows.length);
+                int cells = 0;
+                for (int mask : rows) cells += Integer.bitCount(mask);
+                assertEquals(Pieces.CELLS, cells);
+                for (int i = 0; i < Pieces.CELLS; i++) {
+                    int x = Pieces.cellsX(type, rot)[i];
+                    int y = Pieces.cellsY(type, rot)[i];
+                    assertTrue((rows[y] & (1 << x)) != 0);
+                }
+            }
+        }
+        // The spawn orientation matches SHAPES: flat I on box row 1, vertical in column 2 after one turn
+        assertEquals(0b1111, Pieces.rows(I, 0)[1]);
+        assertEquals(0b0100, Pieces.rows(I, 1)[0]);
+    }
+
+    @Test
+    public void pieces_iKicksFollowSrsTable() {
+        // I from spawn to R: (0,0), (-2,0), (+1,0), (-2,+1), (+1,-2) with y pointing down
+        assertArrayEquals(new int[]{0, 0, -2, 0, 1, 0, -2, 1, 1, -2}, Pieces.kicks(I, 0, 1));
+    }
+
+    @Test
+    public void autoPlayer_reachesItsTargetsAndClearsLines() {
+        GameEngine engine = new GameEngine(new Random(3));
+        AutoPlayer player = new AutoPlayer(1, 4);
+        for (int piece = 0; piece < 500; piece++) {
+            assertTrue(player.think(engine));
+            assertTrue(player.steer(engine));
+            while (engine.moveDown()) { }
+            assertFalse(engine.isGameOver());
+        }
+        assertTrue(engine.getLinesCleared() > 150);
+    }
+
+    @Test
+    public void autoPlayer_costDependsOnTheStackNotTheBoardHeight() {
+        // The same game on a short and a 2000-row board: the same moves, and about the same time
+        long[] nanos = new long[2];
+        int[] lines = new int[2];
+        int[] heights = {20, 2000};
+        for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+            for (int i = 0; i < heights.length; i++) {
+                GameEngine engine = new GameEngine(Board.MAX_WIDTH, heights[i], new PieceRandom(3));
+                AutoPlayer player = new AutoPlayer(1, 8);
+                long start = System.nanoTime();
+                for (int piece = 0; piece < 100 && !engine.isGameOver(); piece++) {
+                    if (player.think(engine)) player.steer(engine);
+                    engine.hardDrop();
+                }
+                nanos[i] = System.nanoTime() - start;
+                lines[i] = engine.getLinesCleared();
+            }
+        }
+        assertEquals(lines[0], lines[1]);
+        assertTrue("2000 rows took " + nanos[1] / 1_000_000 + " ms, 20 rows " + nanos[0] / 1_000_000 + " ms",
+                nanos[1] < 3 * nanos[0] + 50_000_000L);
+    }
+
+    @Test
+    public void replay_reproducesRecordedGame() throws IOException {
+        GameEngine engine = new GameEngine();
+        engine.reset(42);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(bytes), 42);
+        AutoPlayer player = new AutoPlayer();
+        long time = 0;
+        for (int piece = 0; piece < 200 && !engine.isGameOver(); piece++) {
+            player.think(engine);
+            int input;
+            while ((input = player.nextInput(engine)) != Input.NONE && engine.apply(input)) {
+                recorder.record(time += 16, input);
+            }
+            while (engine.apply(Input.GRAVITY)) {
+                recorder.record(time += 1000, Input.GRAVITY);
+            }
+            recorder.record(time += 1000, Input.GRAVITY); // The locking tick
+        }
+        recorder.finish(engine);
+
+        Replay replay = Replay.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(42, replay.getSeed());
+        assertTrue(replay.isComplete());
+        GameEngine playback = new GameEngine();
+        assertTrue(replay.verify(playback));
+        assertEquals(engine.getLinesCleared(), playback.getLinesCleared());
+        assertEquals(time, replay.getTime(replay.size() - 1));
+
+        // Cut off anywhere after the header, e.g. killed while finishing, it still plays
+        byte[] recorded = bytes.toByteArray();
+        for (int length = 16; length < recorded.length; length++) {
+            Replay cut = Replay.read(Channels.newChannel(new ByteArrayInputStream(Arrays.copyOf(recorded, length))));
+            assertFalse(cut.isComplete());
+            assertTrue(cut.size() <= replay.size());
+        }
+        // A board the engine cannot make is rejected up front
+        byte[] bad = recorded.clone();
+        bad[13] = 2; // Width
+        try {
+            Replay.read(Channels.newChannel(new ByteArrayInputStream(bad)));
+            fail("Bad width accepted");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void inputQueue_keepsOrderAndDropsWhenFull() {
+        InputQueue queue = new InputQueue(3); // Rounded up to 4
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(Input.MOVE_LEFT + i, 100 + i));
+        }
+        assertFalse(queue.offer(Input.GRAVITY, 200));
+        assertEquals(Input.MOVE_LEFT, queue.peek());
+        assertEquals(100, queue.peekTime());
+        assertEquals(4, queue.size()); // Peeking leaves it queued
+        assertEquals(Input.MOVE_LEFT, queue.poll());
+        assertEquals(100, queue.lastTime());
+        assertTrue(queue.offer(Input.GRAVITY, 200)); // Wraps around
+        assertEquals(4, queue.size());
+        queue.poll();
+        queue.poll();
+        queue.poll();
+        assertEquals(Input.GRAVITY, queue.poll());
+        assertEquals(Input.NONE, queue.poll());
+    }
+
+    @Test
+    public void autoRepeat_waitsForDasThenRepeatsAtArr() {
+        AutoRepeat repeat = new AutoRepeat(170, 50);
+        InputQueue queue = new InputQueue(16);
+        repeat.press(Input.MOVE_RIGHT, 1000);
+        assertEquals(1170, repeat.poll(1169, queue));
+        assertTrue(queue.isEmpty());
+        assertEquals(1320, repeat.poll(1300, queue)); // Due at 1170, 1220 and 1270
+        assertEquals(3, queue.size());
+        queue.poll();
+        queue.poll();
+        queue.poll();
+        assertEquals(1270, queue.lastTime());
+
+        repeat.press(Input.MOVE_LEFT, 1300); // The newer direction takes over
+        repeat.release(Input.MOVE_RIGHT);
+        assertEquals(Input.MOVE_LEFT, repeat.held());
+        repeat.release(Input.MOVE_LEFT);
+        assertEquals(-1, repeat.poll(5000, queue));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void ghost_matchesSteppingDownAndSkylineMatchesScan() {
+        GameEngine engine = new GameEngine(new Random(11));
+        Random moves = new Random(5);
+        Board board = engine.getBoard();
+        for (int piece = 0; piece < 2000; piece++) {
+            if (engine.isGameOver()) engine.reset();
+            for (int i = moves.nextInt(4); i > 0; i--) engine.rotate();
+            for (int i = moves.nextInt(11) - 5; i != 0; i -= Integer.signum(i)) {
+                engine.apply(i < 0 ? Input.MOVE_LEFT : Input.MOVE_RIGHT);
+            }
+            int type = engine.getShapeType(), rot = engine.getRotation();
+            int y = engine.getShapeY();
+            while (!board.collides(Pieces.rows(type, rot), Pieces.minCol(type, rot), Pieces.maxCol(type, rot),
+                    engine.getShapeX(), y + 1)) {
+                y++;
+            }
+            assertEquals(y, engine.getGhostY());
+
+            if (moves.nextBoolean()) {
+                engine.hardDrop();
+            } else {
+                while (engine.moveDown()) { }
+            }
+            for (int x = 0; x < board.width(); x++) {
+                int top = 0;
+                while (top < board.height() && !board.isOccupied(x, top)) top++;
+                assertEquals(top, board.columnTop(x));
+            }
+        }
+    }
+
+    @Test
+    public void board_clearKeepsColoursAndReusesRows() {
+        Board board = new Board(4, 6);
+        int[] full = {0b1111};
+        board.place(new int[]{0b0001}, 0, 1, 3);
+        board.place(full, 0, 2, 1);
+        board.place(new int[]{0b0010}, 0, 3, 4);
+        board.place(full, 0, 4, 2);
+        board.place(full, 0, 5, 2);
+        assertEquals(3, board.clearFullRows());
+        assertEquals(3, board.get(0, 4));
+        assertEquals(4, board.get(1, 5));
+        assertEquals(0b0001, board.rowMask(4));
+        for (int y = 0; y < 4; y++) {
+            assertEquals(0, board.rowMask(y));
+            for (int x = 0; x < 4; x++) assertEquals(0, board.get(x, y));
+        }
+        // Each row array is still used exactly once: writing one row leaves the others alone
+        board.place(new int[]{0b1000}, 0, 0, 5);
+        assertEquals(5, board.get(3, 0));
+        for (int y = 1; y < 6; y++) assertEquals(0, board.get(3, y));
+    }
+
+    @Test
+    public void pieceRandom_dealsTheSameSequenceAsRandom() {
+        Random expected = new Random(99);
+        PieceRandom actual = new PieceRandom(99);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(7), actual.nextInt(7));
+        }
+        long state = actual.getState();
+        int next = actual.nextInt();
+        actual.setState(state);
+        assertEquals(next, actual.nextInt());
+    }
+
+    @Test
+    public void state_restoresMidGameAndContinuesIdentically() {
+        GameEngine original = new GameEngine();
+        original.reset(8);
+        AutoPlayer player = new AutoPlayer();
+        for (int piece = 0; piece < 120; piece++) {
+            player.think(original);
+            player.steer(original);
+            original.hardDrop();
+        }
+        original.moveLeft();
+        ByteBuffer state = ByteBuffer.allocate(original.stateSize());
+        original.writeState(state);
+        assertFalse(state.hasRemaining());
+        state.flip();
+
+        GameEngine restored = new GameEngine();
+        assertTrue(restored.readState(state));
+        assertEquals(original.getBoard().contentHash(), restored.getBoard().contentHash());
+        for (int x = 0; x < GameEngine.BOARD_WIDTH; x++) {
+            assertEquals(original.getBoard().columnTop(x), restored.getBoard().columnTop(x));
+        }
+        // Same pieces keep coming, so the same moves give the same game
+        for (int piece = 0; piece < 200 && !original.isGameOver(); piece++) {
+            player.think(original);
+            player.steer(original);
+            player.steer(restored);
+            original.hardDrop();
+            restored.hardDrop();
+            assertEquals(original.getShapeType(), restored.getShapeType());
+            assertEquals(original.getNextShapeType(), restored.getNextShapeType());
+        }
+        assertEquals(original.getScore(), restored.getScore());
+        assertEquals(original.getBoard().contentHash(), restored.getBoard().contentHash());
+
+        assertFalse(restored.readState(ByteBuffer.allocate(GameEngine.MAX_STATE_SIZE))); // Not a save
+    }
+
+    @Test
+    public void state_rejectsAPieceOutsideTheBoardOrInsideTheStack() {
+        GameEngine original = new GameEngine();
+        original.reset(8);
+        AutoPlayer player = new AutoPlayer();
+        for (int piece = 0; piece < 30; piece++) {
+            player.think(original);
+            player.steer(original);
+            original.hardDrop();
+        }
+        ByteBuffer state = ByteBuffer.allocate(original.stateSize());
+        original.writeState(state);
+        byte[] saved = state.array();
+        int xAt = 4 + 1 + 8 + 3 * 4 + 3, yAt = xAt + 1; // After the magic, version, generator, counters and pieces
+
+        GameEngine restored = new GameEngine();
+        restored.reset(5);
+        long hash = restored.getBoard().contentHash();
+        int shapeX = restored.getShapeX();
+        byte[][] corrupt = new byte[4][];
+        for (int i = 0; i < corrupt.length; i++) corrupt[i] = saved.clone();
+        corrupt[0][xAt] = 100; // Past the right wall
+        corrupt[1][xAt] = -5; // Past the left wall
+        ByteBuffer.wrap(corrupt[2]).putShort(yAt, (short) 4000); // Below the floor
+        int type = original.getShapeType(), rot = original.getRotation(), inStack = original.getShapeY();
+        while (!original.getBoard().collides(Pieces.rows(type, rot), Pieces.minCol(type, rot),
+                Pieces.maxCol(type, rot), original.getShapeX(), inStack)) {
+            inStack++;
+        }
+        assertTrue(inStack + Pieces.maxRow(type, rot) < GameEngine.BOARD_HEIGHT); // Stopped by the stack, not the floor
+        ByteBuffer.wrap(corrupt[3]).putShort(yAt, (short) inStack); // Inside the stack
+        for (byte[] blob : corrupt) {
+            ByteBuffer in = ByteBuffer.wrap(blob);
+            assertFalse(restored.readState(in));
+            assertEquals(0, in.position());
+            assertEquals(hash, restored.getBoard().contentHash());
+            assertEquals(shapeX, restored.getShapeX());
+        }
+        assertTrue(restored.readState(ByteBuffer.wrap(saved)));
+        assertEquals(original.getBoard().contentHash(), restored.getBoard().contentHash());
+        assertEquals(original.getGhostY(), restored.getGhostY());
+    }
+
+    @Test
+    public void sync_peerCopyFollowsClearsAndGarbage() throws IOException {
+        GameEngine engine = new GameEngine();
+        engine.reset(9);
+        SyncEncoder encoder = new SyncEncoder(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        SyncDecoder peer = new SyncDecoder(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        engine.addListener(new GameEngine.Listener() {
+            @Override
+            public void onRowCleared(int y) {
+                encoder.rowCleared(y);
+            }
+
+            @Override
+            public void onLock(int linesCleared) {
+                if (engine.getPiecesPlaced() % 7 == 0) engine.addGarbage(2, engine.getPiecesPlaced() % 10);
+            }
+
+            @Override
+            public void onGarbageAdded(int lines, int holeColumn) {
+                encoder.garbageAdded(lines, holeColumn);
+            }
+        });
+        AutoPlayer player = new AutoPlayer();
+        ByteBuffer frame = ByteBuffer.allocate(1024);
+        int garbageRows = 0;
+        for (int piece = 0; piece < 150 && !engine.isGameOver(); piece++) {
+            player.think(engine);
+            player.steer(engine);
+            engine.hardDrop();
+            frame.clear();
+            int bytes = encoder.encode(engine, -1, -1, frame);
+            assertTrue(bytes > 0);
+            frame.flip();
+            peer.apply(frame);
+            assertEquals(engine.getBoard().contentHash(), peer.board().contentHash());
+            if (engine.isGameOver()) {
+                assertEquals(-1, peer.pieceType());
+            } else {
+                assertEquals(engine.getShapeType(), peer.pieceType());
+                assertEquals(engine.getShapeX(), peer.pieceX());
+                assertEquals(engine.getShapeY(), peer.pieceY());
+            }
+            assertEquals(engine.getScore(), peer.score());
+            for (int x = 0; x < GameEngine.BOARD_WIDTH; x++) {
+                assertEquals(engine.getBoard().columnTop(x), peer.board().columnTop(x));
+                if (peer.board().get(x, GameEngine.BOARD_HEIGHT - 1) == Board.GARBAGE) garbageRows++;
+            }
+        }
+        assertTrue(engine.getLinesCleared() > 0);
+        assertTrue(garbageRows > 0);
+
+        // Nothing changed, nothing to send
+        frame.clear();
+        if (!engine.isGameOver()) assertEquals(0, encoder.encode(engine, -1, -1, frame));
+    }
+
+    @Test
+    public void versus_badPeerInputFailsWithIOException() throws IOException, InterruptedException {
+        // A push whose hole column is a 10-byte varint that decodes to -1
+        ByteBuffer push = ByteBuffer.wrap(new byte[]{2, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1}); // OP_PUSH
+        SyncDecoder peer = new SyncDecoder(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        try {
+            peer.apply(push);
+            fail("Negative hole accepted");
+        } catch (IOException expected) {
+        }
+
+        // A frame longer than any payload closes the link instead of overflowing the buffer
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            VersusLink link = new VersusLink(server.getInetAddress().getHostAddress(), server.getLocalPort());
+            try (Socket relay = server.accept()) {
+                int length = SyncProtocol.MAX_PAYLOAD + 1;
+                byte[] frame = new byte[SyncProtocol.HEADER_BYTES + length];
+                frame[0] = (byte) (length >>> 8);
+                frame[1] = (byte) length;
+                relay.getOutputStream().write(frame);
+                ByteBuffer dest = ByteBuffer.allocate(SyncProtocol.MAX_PAYLOAD);
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (link.state() != VersusLink.CLOSED && System.nanoTime() < deadline) {
+                    assertFalse(link.receive(dest));
+                    Thread.sleep(1);
+                }
+                assertEquals(VersusLink.CLOSED, link.state());
+                assertNotNull(link.error());
+            } finally {
+                link.close();
+            }
+        }
+    }
+
+    @Test
+    public void versus_backedUpLinkSendsChangesLater() throws Exception {
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReceiveBufferSize(1024); // Fills after a few kilobytes
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+            VersusLink link = new VersusLink(server.getInetAddress().getHostAddress(), server.getLocalPort());
+            try (Socket relay = server.accept()) {
+                relay.getOutputStream().write(new byte[]{0, 1, SyncProtocol.OP_PAIRED});
+                GameEngine engine = new GameEngine(new PieceRandom(4));
+                VersusSession session = new VersusSession(engine, link, 4);
+                Random cells = new Random(4);
+                long now = 0;
+
+                // Nobody reads, so once the socket buffers are full the link backs up and ticks
+                // are skipped; rewriting the bottom rows every tick gets there quickly
+                int skippedWithChanges = 0;
+                for (int tick = 0; skippedWithChanges < 20 && tick < 500_000; tick++) {
+                    for (int y = 10; y < GameEngine.BOARD_HEIGHT; y++) {
+                        long packed = 0;
+                        for (int x = 0; x < GameEngine.BOARD_WIDTH; x++) packed |= (long) cells.nextInt(Board.GARBAGE + 1) << (4 * x);
+                        engine.getBoard().setPackedRow(y, packed);
+                    }
+                    if (tick % 3 == 0) engine.apply(Input.MOVE_LEFT + tick % 2); // Moves the piece too
+                    long skipped = session.ticksSkipped();
+                    session.tick(now += 1_000_000);
+                    if (session.ticksSkipped() > skipped) skippedWithChanges++;
+                }
+                assertTrue("Never backed up after " + link.bytesSent() + " bytes", skippedWithChanges > 0);
+                assertEquals(VersusLink.CONNECTED, link.state());
+
+                // Then the relay catches up, and the peer's copy ends up where the game is
+                ByteArrayOutputStream received = new ByteArrayOutputStream();
+                Thread reader = new Thread(() -> {
+                    byte[] buffer = new byte[8192];
+                    try {
+                        InputStream in = relay.getInputStream();
+                        for (int n; (n = in.read(buffer)) > 0; ) {
+                            synchronized (received) {
+                                received.write(buffer, 0, n);
+                            }
+                        }
+                    } catch (IOException ignored) {
+                    }
+                });
+                reader.start();
+                long deadline = System.nanoTime() + 10_000_000_000L;
+                while (System.nanoTime() < deadline) {
+                    session.tick(now += 1_000_000);
+                    Thread.sleep(1);
+                    synchronized (received) {
+                        if (received.size() == link.bytesSent() && link.canSend(16 * 1024)) break; // Drained
+                    }
+                }
+                session.tick(now += 1_000_000); // Nothing left to send
+                Thread.sleep(50);
+                link.close();
+                relay.shutdownInput();
+                reader.join();
+
+                ByteBuffer frames = ByteBuffer.wrap(received.toByteArray());
+                SyncDecoder peer = new SyncDecoder(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+                while (frames.hasRemaining()) {
+                    int length = frames.getShort() & 0xFFFF;
+                    ByteBuffer payload = frames.slice();
+                    payload.limit(length);
+                    peer.apply(payload);
+                    frames.position(frames.position() + length);
+                }
+                assertEquals(engine.getBoard().contentHash(), peer.board().contentHash());
+                assertEquals(engine.getScore(), peer.score());
+                assertEquals(engine.getShapeX(), peer.pieceX());
+            } finally {
+                link.close();
+            }
+        }
+    }
+
+    @Test
+    public void largeBoard_playsSavesAndScrolls() {
+        GameEngine engine = new GameEngine();
+        engine.reset(10, Board.MAX_WIDTH, 2000);
+        Board board = engine.getBoard();
+        assertEquals(-1L, board.fullRowMask());
+        int type = engine.getShapeType();
+        assertEquals(Board.MAX_WIDTH / 2 - Pieces.boxSize(type) / 2, engine.getShapeX()); // Centred on the wide board
+
+        AutoPlayer player = new AutoPlayer();
+        Viewport viewport = new Viewport();
+        viewport.setSize(board.height(), 20);
+        for (int piece = 0; piece < 300; piece++) {
+            player.think(engine);
+            player.steer(engine);
+            viewport.follow(engine);
+            int firstRow = Math.max(0, engine.getShapeY() + Pieces.minRow(engine.getShapeType(), engine.getRotation()));
+            assertTrue(viewport.top() <= firstRow && firstRow < viewport.bottom());
+            engine.hardDrop();
+        }
+        assertFalse(engine.isGameOver());
+        assertTrue(engine.getLinesCleared() > 0);
+        for (int x = 0; x < board.width(); x++) {
+            int top = 0;
+            while (top < board.height() && !board.isOccupied(x, top)) top++;
+            assertEquals(top, board.columnTop(x));
+        }
+
+        // Only the stack is saved, not the 2000 rows
+        ByteBuffer state = ByteBuffer.allocate(engine.stateSize());
+        engine.writeState(state);
+        assertTrue(state.capacity() < 1000);
+        state.flip();
+        GameEngine restored = new GameEngine();
+        assertTrue(restored.readState(state));
+        assertEquals(Board.MAX_WIDTH, restored.getBoard().width());
+        assertEquals(board.contentHash(), restored.getBoard().contentHash());
+
+        // Garbage and row removal also work at full width
+        board.pushUp(3, 63);
+        assertEquals(board.fullRowMask() >>> 1, board.rowMask(board.height() - 1));
+        board.removeRow(board.height() - 1);
+        assertEquals(board.fullRowMask() >>> 1, board.rowMask(board.height() - 1));
+    }
+
+    @Test
+    public void statsStore_ranksTopGamesAndKeepsTotals() throws IOException {
+        try (StatsStore store = new StatsStore(folder.newFolder(), 3)) {
+            int[] scores = {50, 300, 100, 300, 20, 200};
+            for (int i = 0; i < scores.length; i++) {
+                store.add(new GameRecord(i, scores[i], i, 10, 1000, i, 0));
+            }
+            store.flush();
+            StatsStore.Summary summary = store.summary();
+            assertEquals(6, summary.getGames());
+            assertEquals(970, summary.getTotalScore());
+            assertEquals(300, summary.getBestScore());
+            // Ties go to the earlier game; only the best three are kept
+            assertEquals(3, summary.getTopCount());
+            assertEquals(1, summary.getTop(0).getSeed());
+            assertEquals(3, summary.getTop(1).getSeed());
+            assertEquals(200, summary.getTop(2).getScore());
+            assertEquals(2, summary.rankOf(new GameRecord(0, 250, 0, 0, 0, 9, 0)));
+            assertEquals(-1, summary.rankOf(new GameRecord(0, 100, 0, 0, 0, 9, 0)));
+        }
+    }
+
+    @Test
+    public void statsStore_tellsListenersWhenTheSummaryChanges() throws IOException {
+        try (StatsStore store = new StatsStore(folder.newFolder(), 3)) {
+            store.flush(); // Loaded, so only the adds below are reported
+            List<StatsStore.Summary> published = new CopyOnWriteArrayList<>();
+            store.addListener(published::add);
+            store.add(new GameRecord(0, 100, 1, 2, 3, 0, 0));
+            store.add(new GameRecord(1, 200, 1, 2, 3, 0, 0));
+            store.flush();
+            assertEquals(2, published.size());
+            assertSame(store.summary(), published.get(1));
+            assertEquals(200, published.get(1).getBestScore());
+        }
+    }
+
+    @Test
+    public void statsStore_reopensFromIndexAndLogTail() throws IOException {
+        File dir = folder.newFolder();
+        int games = StatsStore.COMPACT_EVERY + 10; // Compacts once, leaving a tail of 10
+        try (StatsStore store = new StatsStore(dir, 5)) {
+            for (int i = 0; i < games; i++) {
+                store.add(new GameRecord(i, i * 7 % 1000, 1, 2, 3, i, 0));
+            }
+            store.flush();
+            assertNull(store.error());
+        }
+        assertTrue(new File(dir, "games.idx").isFile());
+
+        // A record torn by a kill mid-write is dropped on the next open
+        try (RandomAccessFile log = new RandomAccessFile(new File(dir, "games.log"), "rw")) {
+            log.setLength(log.length() + GameRecord.SIZE / 2);
+        }
+        StatsStore.Summary expected;
+        try (StatsStore store = new StatsStore(dir, 5)) {
+            store.flush();
+            expected = store.summary();
+            assertEquals(games, expected.getGames());
+            assertEquals(2L * games, expected.getTotalPieces());
+            assertEquals(999, expected.getBestScore());
+            store.add(new GameRecord(-1, 5000, 0, 0, 0, games, 0));
+            store.flush();
+            assertEquals(0, store.summary().rankOf(new GameRecord(0, 5001, 0, 0, 0, 0, 0)));
+        }
+
+        // A damaged index is rebuilt from the whole log
+        try (RandomAccessFile index = new RandomAccessFile(new File(dir, "games.idx"), "rw")) {
+            index.seek(20);
+            index.write(0x55);
+        }
+        try (StatsStore store = new StatsStore(dir, 5)) {
+            store.flush();
+            StatsStore.Summary summary = store.summary();
+            assertEquals(games + 1, summary.getGames());
+            assertEquals(5000, summary.getBestScore());
+            assertEquals(expected.getTop(0).getSeed(), summary.getTop(1).getSeed());
+        }
+    }
+
+    @Test
+    public void tripleBuffer_consumerOnlySeesWholeNewerValues() throws InterruptedException {
+        long[][] slots = {new long[2], new long[2], new long[2]};
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(slots[0], slots[1], slots[2]);
+        long[] first = buffer.back();
+        first[0] = 1;
+        first[1] = -1;
+        buffer.publish();
+        assertSame(first, buffer.acquire());
+        assertSame(first, buffer.acquire()); // Nothing newer yet
+
+        // Both halves of a value are always written together, so a torn read shows up as a mismatch
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (long v = 2; v <= count; v++) {
+                long[] back = buffer.back();
+                back[0] = v;
+                back[1] = -v;
+                buffer.publish();
+            }
+        });
+        producer.start();
+        long last = 1;
+        while (last < count) {
+            long[] value = buffer.acquire();
+            long v = value[0];
+            assertEquals(-v, value[1]);
+            assertTrue(v >= last);
+            if (v == last) Thread.yield(); // Let the producer run on a single core
+            last = v;
+        }
+        producer.join();
+    }
+
+    @Test
+    public void inputRing_handsEveryInputOverInOrder() throws InterruptedException {
+        InputRing ring = new InputRing(8);
+        assertTrue(ring.isEmpty());
+        for (int i = 0; i < 8; i++) assertTrue(ring.offer(i % Input.COUNT, i));
+        assertFalse(ring.offer(Input.ROTATE, 8)); // Full
+        assertEquals(0, ring.poll());
+        assertEquals(0, ring.lastTime());
+
+        InputRing shared = new InputRing(64);
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; ) {
+                if (shared.offer(i % Input.COUNT, i)) {
+                    i++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; ) {
+            int input = shared.poll();
+            if (input == Input.NONE) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(i % Input.COUNT, input);
+            assertEquals(i, shared.lastTime());
+            i++;
+        }
+        producer.join();
+        assertTrue(shared.isEmpty());
+    }
+
+    @Test
+    public void gameSnapshot_copiesOnlyChangedBoards() {
+        GameEngine engine = new GameEngine();
+        engine.reset(5);
+        for (int i = 0; i < 10; i++) engine.hardDrop();
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.copyFrom(engine);
+        assertEquals(engine.getBoard().contentHash(), snapshot.getBoard().contentHash());
+        assertEquals(engine.getBoard().version(), snapshot.getBoard().version());
+        assertEquals(engine.getGhostY(), snapshot.getGhostY());
+        assertEquals(engine.getPiecesPlaced(), snapshot.getPiecesPlaced());
+
+        engine.apply(Input.MOVE_LEFT); // Moves the piece only
+        int version = snapshot.getBoard().version();
+        snapshot.copyFrom(engine);
+        assertEquals(version, snapshot.getBoard().version());
+        assertEquals(engine.getShapeX(), snapshot.getShapeX());
+
+        engine.reset(5, 16, 40);
+        snapshot.copyFrom(engine);
+        assertEquals(16, snapshot.getBoard().width());
+        assertEquals(engine.getBoard().contentHash(), snapshot.getBoard().contentHash());
+    }
+
+    @Test
+    public void puzzleSolver_findsPerfectClearThatReplaysInEngine() throws InterruptedException {
+        Puzzle puzzle = Puzzle.parse("TZJLJTZIST", 10, "##........", "##........", "##........", "##........");
+        for (int threads = 1; threads <= 2; threads++) {
+            PuzzleSolver solver = new PuzzleSolver(threads, 16);
+            try {
+                PuzzleSolver.Solution solution = solver.solve(puzzle);
+                assertNotNull(solution);
+                assertEquals(8, solution.pieces()); // (40 - 8) / 4 cells
+                assertEquals(4, solution.lines());
+
+                GameEngine engine = puzzle.newGame(20);
+                assertEquals(20 - 4, engine.getBoard().stackTop());
+                for (int i = 0; i < solution.pieces(); i++) {
+                    assertEquals(puzzle.piece(i), engine.getShapeType());
+                    for (int r = 0; r < solution.rotation(i); r++) assertTrue(engine.apply(Input.ROTATE));
+                    while (engine.getShapeX() < solution.x(i)) assertTrue(engine.apply(Input.MOVE_RIGHT));
+                    while (engine.getShapeX() > solution.x(i)) assertTrue(engine.apply(Input.MOVE_LEFT));
+                    engine.hardDrop();
+                }
+                assertEquals(20, engine.getBoard().stackTop()); // Nothing left
+                assertEquals(4, engine.getLinesCleared());
+            } finally {
+                solver.close();
+            }
+        }
+    }
+
+    @Test
+    public void puzzle_loadsIntoARunningEngineAndDealsItsSequence() {
+        Puzzle puzzle = Puzzle.parse("OIT", 3, "#########.", "#########.");
+        GameEngine engine = new GameEngine(new PieceRandom(5));
+        engine.hardDrop();
+        engine.reset(puzzle, 20);
+        assertEquals(20 - 2, engine.getBoard().stackTop());
+        assertEquals(Board.GARBAGE, engine.getBoard().get(0, 19));
+        assertEquals(0, engine.getBoard().get(9, 19));
+        assertEquals(0, engine.getPiecesPlaced());
+        assertEquals(1, engine.getShapeType()); // O, then I
+        assertEquals(0, engine.getNextShapeType());
+
+        // Not saveable until the whole sequence is dealt
+        ByteBuffer state = ByteBuffer.allocate(GameEngine.MAX_STATE_SIZE);
+        try {
+            engine.writeState(state);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        engine.hardDrop();
+        assertEquals(0, engine.getShapeType());
+        assertEquals(2, engine.getNextShapeType()); // The last of the sequence
+        engine.writeState(state);
+
+        // A plain reset goes back to the generator
+        engine.reset(5);
+        GameEngine fresh = new GameEngine(new PieceRandom(5));
+        assertEquals(fresh.getShapeType(), engine.getShapeType());
+        assertEquals(fresh.getNextShapeType(), engine.getNextShapeType());
+    }
+
+    @Test
+    public void puzzleSolver_rejectsPuzzlesThatCannotBeCleared() throws InterruptedException {
+        PuzzleSolver solver = new PuzzleSolver(1, 16);
+        // S pieces cannot tile a rectangle
+        assertNull(solver.solve(Puzzle.parse("SSSS", 4, "######....", "######....", "######....", "######....")));
+        // Needs eight pieces
+        assertNull(solver.solve(Puzzle.parse("TZJLJTZIST", 7, "##........", "##........", "##........", "##........")));
+        // Needs an I in the well
+        assertNull(solver.solve(Puzzle.parse("OOO", 3, "#########.", "#########.", "#########.", "#########.")));
+        assertEquals(1, solver.solve(Puzzle.parse("IOO", 3, "#########.", "#########.", "#########.", "#########.")).pieces());
+        assertEquals(0, solver.solve(Puzzle.parse("I", 0, "..........")).pieces()); // Already clear
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.myapplication;
+
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.StatsStore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class GameLoopTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Waits for the loop to publish a frame that passes, for up to five seconds
+    private interface Condition {
+        boolean test(GameLoop.Frame frame);
+    }
+
+    private static GameLoop.Frame awaitFrame(GameLoop loop, Condition condition) throws InterruptedException {
+        GameLoop.Frame frame = loop.latestFrame();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.test(frame) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            frame = loop.latestFrame();
+        }
+        assertTrue(condition.test(frame));
+        return frame;
+    }
+
+    private GameLoop.Host host(StatsStore stats) throws IOException {
+        File dir = folder.newFolder();
+        return new GameLoop.Host() {
+            @Override
+            public File filesDir() {
+                return dir;
+            }
+
+            @Override
+            public StatsStore stats() {
+                return stats;
+            }
+
+            @Override
+            public void warn(String message, Throwable error) {
+                throw new AssertionError(message, error);
+            }
+        };
+    }
+
+    @Test
+    public void loop_appliesInputsOnItsThreadAndPublishesFrames() throws InterruptedException {
+        GameLoop loop = new GameLoop(60_000_000_000L); // No gravity during the test
+        assertTrue(loop.latestFrame().startScreen);
+        loop.start();
+        loop.send(Input.HARD_DROP, 0); // Ignored on the start screen
+        loop.send(GameLoop.START, 0);
+        loop.send(Input.HARD_DROP, 0);
+        loop.send(Input.HARD_DROP, 0);
+
+        GameLoop.Frame frame = loop.latestFrame();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (frame.game.getPiecesPlaced() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            frame = loop.latestFrame();
+        }
+        assertEquals(2, frame.game.getPiecesPlaced());
+        assertFalse(frame.startScreen);
+        assertFalse(loop.isStartScreen());
+
+        loop.stop();
+        byte[] state = loop.saveState();
+        assertNotNull(state);
+        GameLoop restored = new GameLoop(1_000_000_000L);
+        assertTrue(restored.restoreState(state));
+        assertEquals(2, restored.latestFrame().game.getPiecesPlaced());
+        assertEquals(frame.game.getBoard().contentHash(), restored.latestFrame().game.getBoard().contentHash());
+    }
+
+    @Test
+    public void loop_recordsGamesAndPlaysThemBack() throws IOException, InterruptedException {
+        try (StatsStore stats = new StatsStore(folder.newFolder(), 10)) {
+            GameLoop loop = new GameLoop(60_000_000_000L, host(stats));
+            loop.start();
+            try {
+                loop.send(GameLoop.START, 0);
+                loop.send(Input.MOVE_LEFT, 0);
+                loop.send(Input.ROTATE, 0);
+                for (int i = 0; i < 40; i++) loop.send(Input.HARD_DROP, 0); // Tops out well before
+                GameLoop.Frame played = awaitFrame(loop, f -> f.game.isGameOver());
+                long hash = played.game.getBoard().contentHash();
+                int score = played.game.getScore(), pieces = played.game.getPiecesPlaced();
+                assertEquals(0, played.gameOverRank);
+                stats.flush();
+                assertEquals(1, stats.summary().getGames());
+
+                // Moves sent during the replay are ignored; it plays the recorded game exactly
+                loop.send(GameLoop.RETRY, 0);
+                loop.send(GameLoop.PLAY_REPLAY, 0);
+                loop.send(Input.HARD_DROP, 0);
+                GameLoop.Frame replayed = awaitFrame(loop, f -> f.game.isGameOver() && !f.replaying);
+                assertEquals(hash, replayed.game.getBoard().contentHash());
+                assertEquals(score, replayed.game.getScore());
+                assertEquals(pieces, replayed.game.getPiecesPlaced());
+                stats.flush();
+                assertEquals(1, stats.summary().getGames()); // A replay is not another game
+            } finally {
+                loop.stop();
+            }
+        }
+    }
+
+    @Test
+    public void loop_loadsThePuzzleAndShowsTheSolversAnswer() throws IOException, InterruptedException {
+        try (StatsStore stats = new StatsStore(folder.newFolder(), 10)) {
+            GameLoop loop = new GameLoop(60_000_000_000L, host(stats));
+            loop.start();
+            try {
+                loop.send(GameLoop.START_PUZZLE, 0);
+                GameLoop.Frame frame = awaitFrame(loop, f -> !f.puzzleText.isEmpty()
+                        && !f.puzzleText.equals(GameModes.PUZZLE_SOLVING));
+                assertTrue(frame.startScreen);
+                assertTrue(frame.puzzleText, frame.puzzleText.contains("8/10")); // Eight of the ten pieces
+                assertEquals(GameModes.PUZZLE.piece(0), frame.game.getShapeType());
+                assertEquals(20 - GameModes.PUZZLE.rowCount(), frame.game.getBoard().stackTop());
+
+                loop.send(GameLoop.START, 0);
+                awaitFrame(loop, f -> !f.startScreen);
+                loop.stop();
+                assertNull(loop.saveState()); // The sequence is not saveable
+                loop.start();
+                loop.send(GameLoop.RETRY, 0);
+                frame = awaitFrame(loop, f -> f.startScreen && f.puzzleText.isEmpty());
+                assertEquals(20, frame.game.getBoard().stackTop());
+            } finally {
+                loop.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+    @Test
+    public void buckets_coverEveryValueInOrder() {
+        long previous = -1;
+        for (int b = 0; b < new Histogram().bucketCount(); b++) {
+            long upper = Histogram.upperBound(b);
+            assertTrue(upper > previous);
+            assertEquals(b, Histogram.bucket(upper));
+            assertEquals(b, Histogram.bucket(previous + 1));
+            previous = upper;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void percentiles_areWithinOneEighth() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v * 1_000_000L); // 1 ms to 1 s
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000_000L, histogram.max());
+        assertEquals(500_000_000L, histogram.percentile(0.5), 500_000_000L / 8.0);
+        assertEquals(990_000_000L, histogram.percentile(0.99), 990_000_000L / 8.0);
+        assertEquals(histogram.max(), histogram.percentile(1.0));
+    }
+
+    @Test
+    public void empty_reportsZero() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.mean());
+        histogram.record(-5); // Clock hiccups count as zero
+        assertEquals(0, histogram.max());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.Pieces;
+import com.example.myapplication.engine.Viewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the board primitives behind canPlaceShape, mergeShape and clearLines, and of
+ * visiting the cells a frame draws, on differently sized and filled boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmark {
+    private static final int T = 2;
+    private static final int DROP_X = 3; // Column place() drops its T at
+
+    @Param
+    public BoardSize size;
+
+    @Param
+    public BoardFill fill;
+
+    private Board template;
+    private Board board;
+    private int landY; // Row the T comes to rest at, on top of the stack
+    private final Viewport viewport = new Viewport();
+
+    @Setup
+    public void setUp() {
+        template = new Board(size.width, size.height);
+        board = new Board(size.width, size.height);
+        fill.fill(template, 42);
+        board.copyFrom(template);
+        int[] rows = Pieces.rows(T, 0);
+        landY = -Pieces.minRow(T, 0);
+        while (!template.collides(rows, Pieces.minCol(T, 0), Pieces.maxCol(T, 0), DROP_X, landY + 1)) landY++;
+        // A phone screen's worth of rows, scrolled to the top of the stack like during play
+        viewport.setSize(size.height, 20);
+        viewport.follow(board.stackTop() - 4, board.stackTop());
+    }
+
+    /** canPlaceShape for a T in every rotation at every column of every row; grows with the area. */
+    @Benchmark
+    public void collidesSweep(Blackhole bh) {
+        for (int rot = 0; rot < Pieces.ROTATIONS; rot++) {
+            int[] rows = Pieces.rows(T, rot);
+            int minCol = Pieces.minCol(T, rot);
+            int maxCol = Pieces.maxCol(T, rot);
+            for (int y = -1; y < board.height(); y++) {
+                for (int x = -1; x < board.width(); x++) {
+                    bh.consume(board.collides(rows, minCol, maxCol, x, y));
+                }
+            }
+        }
+    }
+
+    /** canPlaceShape for a T in every rotation at every column just above the stack, as a drop probes. */
+    @Benchmark
+    public void collidesAtStack(Blackhole bh) {
+        int top = board.stackTop();
+        for (int rot = 0; rot < Pieces.ROTATIONS; rot++) {
+            int[] rows = Pieces.rows(T, rot);
+            int minCol = Pieces.minCol(T, rot);
+            int maxCol = Pieces.maxCol(T, rot);
+            for (int y = top - 3; y <= top; y++) {
+                for (int x = -1; x < board.width(); x++) {
+                    bh.consume(board.collides(rows, minCol, maxCol, x, y));
+                }
+            }
+        }
+    }
+
+    /** Baseline for the two benchmarks below, which must restore the board first. */
+    @Benchmark
+    public Board restore() {
+        board.copyFrom(template);
+        return board;
+    }
+
+    /** mergeShape: restore, then lock a T where it lands when dropped onto the stack. */
+    @Benchmark
+    public Board place() {
+        board.copyFrom(template);
+        board.place(Pieces.rows(T, 0), DROP_X, landY, T + 1);
+        return board;
+    }
+
+    /** clearLines: restore, then scan and clear; only MULTI_CLEAR actually removes rows. */
+    @Benchmark
+    public int clearFullRows() {
+        board.copyFrom(template);
+        return board.clearFullRows();
+    }
+
+    /**
+     * The cell visits of drawing one frame through the renderer's viewport: occupied cells
+     * of the visible rows only. Canvas itself needs a device, so this measures the walk.
+     */
+    @Benchmark
+    public int drawVisible() {
+        int drawn = 0;
+        for (int y = Math.max(viewport.top(), board.stackTop()); y < viewport.bottom(); y++) {
+            if (board.rowMask(y) == 0) continue;
+            for (int x = 0; x < board.width(); x++) {
+                if (board.get(x, y) != 0) drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    /** The same walk over every row, as drawing did before the viewport. */
+    @Benchmark
+    public int drawAll() {
+        int drawn = 0;
+        for (int y = 0; y < board.height(); y++) {
+            if (board.rowMask(y) == 0) continue;
+            for (int x = 0; x < board.width(); x++) {
+                if (board.get(x, y) != 0) drawn++;
+            }
+        }
+        return drawn;
+    }
+}
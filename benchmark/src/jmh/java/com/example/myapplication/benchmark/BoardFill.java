@@ -0,0 +1,46 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.engine.Board;
+
+import java.util.Random;
+
+/** Representative board states the benchmarks run against, scaled to the board's height. */
+public enum BoardFill {
+    /** Nothing placed. */
+    EMPTY(0, 0),
+    /** Bottom half filled, one hole per row so nothing clears. */
+    HALF(0.5, 0),
+    /** Stack two rows below the top of a classic board, about to top out. */
+    NEAR_TOP(0.9, 0),
+    /** Four full rows under a ragged stack: a tetris waiting to be cleared. */
+    MULTI_CLEAR(0.4, 4);
+
+    private final double raggedFraction;
+    private final int fullRows;
+
+    BoardFill(double raggedFraction, int fullRows) {
+        this.raggedFraction = raggedFraction;
+        this.fullRows = fullRows;
+    }
+
+    /** Fills {@code board} deterministically; the same seed always gives the same layout. */
+    public void fill(Board board, long seed) {
+        Random random = new Random(seed);
+        byte[] row = new byte[board.width()];
+        board.clear();
+        int y = board.height() - 1;
+        for (int i = 0; i < fullRows; i++, y--) {
+            for (int x = 0; x < row.length; x++) row[x] = (byte) (1 + random.nextInt(7));
+            board.setRow(y, row);
+        }
+        int raggedRows = (int) Math.round(board.height() * raggedFraction);
+        for (int i = 0; i < raggedRows; i++, y--) {
+            // A random half-full row with at least one hole
+            int hole = random.nextInt(row.length);
+            for (int x = 0; x < row.length; x++) {
+                row[x] = x != hole && random.nextBoolean() ? (byte) (1 + random.nextInt(7)) : 0;
+            }
+            board.setRow(y, row);
+        }
+    }
+}
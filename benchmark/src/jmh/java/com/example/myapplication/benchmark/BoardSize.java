@@ -0,0 +1,16 @@
+package com.example.myapplication.benchmark;
+
+/** Board sizes the benchmarks run on, from the classic board to a scrolling marathon one. */
+public enum BoardSize {
+    CLASSIC(10, 20),
+    WIDE(16, 40),
+    MARATHON(64, 2000);
+
+    public final int width;
+    public final int height;
+
+    BoardSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+}
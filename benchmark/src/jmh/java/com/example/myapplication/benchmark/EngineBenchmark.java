@@ -0,0 +1,95 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.engine.Board;
+import com.example.myapplication.engine.GameEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of the engine moves players actually trigger. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmark {
+    @Param
+    public BoardSize size;
+
+    @Param
+    public BoardFill fill;
+
+    private GameEngine engine;
+    private Board template;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(size.width, size.height, new Random(7));
+        template = new Board(size.width, size.height);
+        fill.fill(template, 42);
+        restart();
+    }
+
+    private void restart() {
+        engine.reset();
+        engine.getBoard().copyFrom(template);
+    }
+
+    /**
+     * Puts the board back to the {@link #fill} before every call of the benchmarks that lock
+     * pieces, which would otherwise measure whatever stack the previous calls left behind.
+     */
+    @State(Scope.Thread)
+    public static class Refilled {
+        @Setup(Level.Invocation)
+        public void refill(EngineBenchmark benchmark) {
+            GameEngine engine = benchmark.engine;
+            if (engine.isGameOver()) {
+                benchmark.restart();
+            } else {
+                engine.getBoard().copyFrom(benchmark.template);
+                // The piece spawned over the previous stack; start over if it overlaps the template
+                if (!engine.canPlaceShape()) benchmark.restart();
+            }
+        }
+    }
+
+    /** Clockwise rotation including the SRS kick probes. */
+    @Benchmark
+    public boolean rotate() {
+        if (engine.isGameOver()) restart();
+        return engine.rotate();
+    }
+
+    /** A full lock cycle: gravity until the piece lands, then merge, clear and spawn. */
+    @Benchmark
+    public int dropAndLock(Refilled refilled) {
+        int rows = 0;
+        while (engine.moveDown()) rows++;
+        return rows;
+    }
+
+    /** Landing row lookup done for the ghost piece on every move and frame. */
+    @Benchmark
+    public int ghostY() {
+        if (engine.isGameOver()) restart();
+        engine.moveRight();
+        engine.moveLeft();
+        return engine.getGhostY();
+    }
+
+    /** Same lock cycle as {@link #dropAndLock}, landing through the skyline instead of gravity steps. */
+    @Benchmark
+    public int hardDrop(Refilled refilled) {
+        engine.hardDrop();
+        return engine.getPiecesPlaced();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.engine.GameEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput: one operation is one piece played from spawn to lock with a few
+ * random shifts and rotations, so the score reads directly as pieces per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameSimulationBenchmark {
+    private GameEngine engine;
+    private Random moves;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(new Random(1));
+        moves = new Random(2);
+    }
+
+    @Benchmark
+    public int playPiece() {
+        if (engine.isGameOver()) engine.reset();
+        int rotations = moves.nextInt(4);
+        for (int i = 0; i < rotations; i++) engine.rotate();
+        int shift = moves.nextInt(11) - 5;
+        for (int i = 0; i < Math.abs(shift); i++) {
+            if (shift < 0) engine.moveLeft();
+            else engine.moveRight();
+        }
+        while (engine.moveDown()) {
+            // Fall until locked
+        }
+        return engine.getScore();
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.myapplication.engine;
+
+import java.util.Arrays;
+
+/**
+ * Heuristic AI that picks where the current piece should land.
+ *
+ * <p>{@link #think} enumerates every placement reachable by rotating in place, shifting
+ * sideways and dropping, scores each resulting board with a weighted sum of aggregate
+ * height, lines cleared, holes, bumpiness and well depth, and optionally continues with
+ * the preview piece using a beam search. All work happens on preallocated row-mask
+ * scratch arrays, so deciding a move never allocates, and only on the rows from the top of
+ * the stack down, so a tall board with a low stack costs no more than a short one. {@link #steer} then drives the
+ * engine there through its ordinary move methods, exactly like player input would.
+ */
+public final class AutoPlayer {
+    // Weights from the well-known genetic-algorithm tuning of the four classic features
+    public static final double DEFAULT_HEIGHT_WEIGHT = -0.510066;
+    public static final double DEFAULT_LINES_WEIGHT = 0.760666;
+    public static final double DEFAULT_HOLES_WEIGHT = -0.35663;
+    public static final double DEFAULT_BUMPINESS_WEIGHT = -0.184483;
+    public static final double DEFAULT_WELLS_WEIGHT = -0.05;
+
+    private static final int O = 1; // Shape type of the O piece, see GameEngine.SHAPES
+
+    // Scores placements that leave cells above the board: anything else is preferred
+    private static final double TOP_OUT_SCORE = -1e9;
+
+    private final double heightWeight, linesWeight, holesWeight, bumpinessWeight, wellsWeight;
+    private final int lookahead;
+    private final int beamWidth;
+
+    // Sized to the board of the last think(); only a new board size reallocates
+    private int width, height;
+    private long fullRowMask;
+    private int[] heights;
+    private long[] scratch;
+    private long[] candidate;
+    // Every row above these is empty; rows are only copied, cleared and scored from there down
+    private int scratchTop, candidateTop;
+    private int[] columnTops; // Skyline of the board being expanded
+    // Two beams, swapped between search depths; each entry is a board plus its first move.
+    // The tops stay with their arrays, also in unused slots, which may hold old rows up to there
+    private long[][] beamRows, nextRows;
+    private int[] beamTop, nextTop;
+    private double[] beamScore, nextScore;
+    private int[] beamLines, nextLines, beamRootRot, nextRootRot, beamRootX, nextRootX;
+    private int beamSize, nextSize;
+
+    private int targetRotation, targetX;
+
+    /** One-ply greedy player with the default weights. */
+    public AutoPlayer() {
+        this(0, 1);
+    }
+
+    /**
+     * @param lookahead preview pieces to search past the current one (the engine shows one)
+     * @param beamWidth boards kept per search depth
+     */
+    public AutoPlayer(int lookahead, int beamWidth) {
+        this(lookahead, beamWidth, DEFAULT_HEIGHT_WEIGHT, DEFAULT_LINES_WEIGHT, DEFAULT_HOLES_WEIGHT,
+                DEFAULT_BUMPINESS_WEIGHT, DEFAULT_WELLS_WEIGHT);
+    }
+
+    public AutoPlayer(int lookahead, int beamWidth, double heightWeight, double linesWeight,
+                      double holesWeight, double bumpinessWeight, double wellsWeight) {
+        if (lookahead < 0 || beamWidth < 1) {
+            throw new IllegalArgumentException("lookahead must be >= 0 and beam width >= 1");
+        }
+        this.lookahead = lookahead;
+        this.beamWidth = beamWidth;
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+        this.wellsWeight = wellsWeight;
+
+        resize(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+        beamScore = new double[beamWidth];
+        nextScore = new double[beamWidth];
+        beamLines = new int[beamWidth];
+        nextLines = new int[beamWidth];
+        beamRootRot = new int[beamWidth];
+        nextRootRot = new int[beamWidth];
+        beamRootX = new int[beamWidth];
+        nextRootX = new int[beamWidth];
+    }
+
+    private void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        fullRowMask = width == Long.SIZE ? -1L : (1L << width) - 1;
+        heights = new int[width];
+        columnTops = new int[width];
+        scratch = new long[height];
+        candidate = new long[height];
+        scratchTop = candidateTop = height;
+        beamRows = new long[beamWidth][height];
+        nextRows = new long[beamWidth][height];
+        beamTop = new int[beamWidth];
+        nextTop = new int[beamWidth];
+        Arrays.fill(beamTop, height);
+        Arrays.fill(nextTop, height);
+    }
+
+    /** Rotation chosen by the last successful {@link #think}. */
+    public int getTargetRotation() {
+        return targetRotation;
+    }
+
+    /** Box column chosen by the last successful {@link #think}. */
+    public int getTargetX() {
+        return targetX;
+    }
+
+    /**
+     * Searches placements for the engine's current piece. Returns false if the game is over
+     * or the piece has no legal placement; otherwise the target is available from the getters.
+     */
+    public boolean think(GameEngine engine) {
+        if (engine.isGameOver()) return false;
+        Board board = engine.getBoard();
+        if (board.width() != width || board.height() != height) resize(board.width(), board.height());
+        int top = board.stackTop();
+        board.copyRowsTo(scratch, Math.min(top, scratchTop)); // Also blanks what the last think left above
+        scratchTop = top;
+
+        nextSize = 0;
+        expand(scratch, top, 0, engine.getShapeType(), engine.getRotation(), engine.getShapeX(), engine.getShapeY(), -1, -1);
+        int depth = Math.min(lookahead, 1); // Only one preview piece is known
+        for (int d = 0; d < depth && nextSize > 0; d++) {
+            swapBeams();
+            nextSize = 0;
+            int type = engine.getNextShapeType();
+            for (int i = 0; i < beamSize; i++) {
+                expand(beamRows[i], beamTop[i], beamLines[i], type, 0, engine.spawnX(type), GameEngine.spawnY(type),
+                        beamRootRot[i], beamRootX[i]);
+            }
+        }
+        if (nextSize == 0) return false;
+        targetRotation = nextRootRot[0];
+        targetX = nextRootX[0];
+        return true;
+    }
+
+    /**
+     * Next input that moves the engine's piece towards the last target, or {@link Input#NONE}
+     * once it is there. Feeding these through the caller's own input path (rather than
+     * {@link #steer}) lets them be recorded like player input.
+     */
+    public int nextInput(GameEngine engine) {
+        int turns = (targetRotation - engine.getRotation()) & 3;
+        if (turns == 3) return Input.ROTATE_CCW;
+        if (turns != 0) return Input.ROTATE;
+        if (engine.getShapeX() < targetX) return Input.MOVE_RIGHT;
+        if (engine.getShapeX() > targetX) return Input.MOVE_LEFT;
+        return Input.NONE;
+    }
+
+    /**
+     * Rotates and shifts the engine's piece to the last target. Returns true if it got there;
+     * the caller (or gravity) then drops it.
+     */
+    public boolean steer(GameEngine engine) {
+        int input;
+        while ((input = nextInput(engine)) != Input.NONE) {
+            if (!engine.apply(input)) return false; // Blocked
+        }
+        return true;
+    }
+
+    private void swapBeams() {
+        long[][] rows = beamRows; beamRows = nextRows; nextRows = rows;
+        int[] tops = beamTop; beamTop = nextTop; nextTop = tops;
+        double[] score = beamScore; beamScore = nextScore; nextScore = score;
+        int[] lines = beamLines; beamLines = nextLines; nextLines = lines;
+        int[] rot = beamRootRot; beamRootRot = nextRootRot; nextRootRot = rot;
+        int[] x = beamRootX; beamRootX = nextRootX; nextRootX = x;
+        beamSize = nextSize;
+    }
+
+    /**
+     * Offers every placement of {@code type} reachable from the given position on
+     * {@code board}, empty above row {@code top}, to the next beam. A negative
+     * {@code rootRot} marks the first depth, where each placement is its own root move.
+     */
+    private void expand(long[] board, int top, int lines, int type, int rot0, int x0, int y0, int rootRot, int rootX) {
+        skyline(board, top);
+        for (int turns = 0; turns < Pieces.ROTATIONS; turns++) {
+            if (type == O && turns > 0) break; // O looks the same in every rotation
+            // Replay the same rotate calls steer() will make, kicks included
+            int rot = rot0, x = x0, y = y0;
+            boolean ok = true;
+            int steps = turns == 3 ? 1 : turns;
+            int dir = turns == 3 ? 3 : 1;
+            for (int s = 0; s < steps && ok; s++) {
+                int to = (rot + dir) & 3;
+                int[] kicks = Pieces.kicks(type, rot, to);
+                ok = false;
+                for (int k = 0; k < kicks.length; k += 2) {
+                    if (!fits(board, type, to, x + kicks[k], y + kicks[k + 1])) continue;
+                    x += kicks[k];
+                    y += kicks[k + 1];
+                    rot = to;
+                    ok = true;
+                    break;
+                }
+            }
+            if (!ok) continue;
+
+            for (int px = x; fits(board, type, rot, px, y); px--) {
+                land(board, top, lines, type, rot, px, y, rootRot, rootX);
+            }
+            for (int px = x + 1; fits(board, type, rot, px, y); px++) {
+                land(board, top, lines, type, rot, px, y, rootRot, rootX);
+            }
+        }
+    }
+
+    private boolean fits(long[] board, int type, int rot, int x, int y) {
+        return !Board.collides(board, width, height, Pieces.rows(type, rot),
+                Pieces.minCol(type, rot), Pieces.maxCol(type, rot), x, y);
+    }
+
+    // Column tops of board, scanning down from top only until every column is found
+    private void skyline(long[] board, int top) {
+        long pending = fullRowMask;
+        for (int y = top; y < height && pending != 0; y++) {
+            long found = board[y] & pending;
+            pending &= ~found;
+            for (; found != 0; found &= found - 1) columnTops[Long.numberOfTrailingZeros(found)] = y;
+        }
+        for (; pending != 0; pending &= pending - 1) columnTops[Long.numberOfTrailingZeros(pending)] = height;
+    }
+
+    // Landing row through the skyline, as GameEngine.getGhostY finds it; only a piece already
+    // below the skyline in some column steps down row by row
+    private int drop(long[] board, int type, int rot, int x, int y) {
+        int[] bottoms = Pieces.bottoms(type, rot);
+        int landing = Integer.MAX_VALUE;
+        for (int c = Pieces.minCol(type, rot); c <= Pieces.maxCol(type, rot); c++) {
+            int bottom = bottoms[c];
+            if (bottom < 0) continue;
+            int columnTop = columnTops[x + c];
+            if (y + bottom >= columnTop) {
+                while (fits(board, type, rot, x, y + 1)) y++;
+                return y;
+            }
+            landing = Math.min(landing, columnTop - 1 - bottom);
+        }
+        return landing;
+    }
+
+    private void land(long[] board, int top, int lines, int type, int rot, int x, int y, int rootRot, int rootX) {
+        y = drop(board, type, rot, x, y);
+
+        int from = Math.min(top, candidateTop); // Also blanks the last candidate's rows above top
+        System.arraycopy(board, from, candidate, from, height - from);
+        int[] piece = Pieces.rows(type, rot);
+        boolean toppedOut = false;
+        for (int r = 0; r < piece.length; r++) {
+            if (piece[r] == 0) continue;
+            int by = y + r;
+            if (by < 0) {
+                toppedOut = true;
+                continue;
+            }
+            candidate[by] |= Board.shift(piece[r], x);
+            top = Math.min(top, by);
+        }
+        int cleared = Board.clearFullRows(candidate, top, height, fullRowMask);
+        candidateTop = top + cleared;
+        int total = lines + cleared;
+        double score = toppedOut ? TOP_OUT_SCORE : evaluate(candidate, candidateTop) + linesWeight * total;
+        offer(score, total, rootRot < 0 ? rot : rootRot, rootRot < 0 ? x : rootX);
+    }
+
+    /** Inserts {@link #candidate} into the next beam, kept sorted best first, if it makes the cut. */
+    private void offer(double score, int lines, int rootRot, int rootX) {
+        if (nextSize == beamWidth && score <= nextScore[beamWidth - 1]) return;
+        // Recycle the array of the entry that falls off the end (or the first unused one)
+        int last = nextSize < beamWidth ? nextSize++ : beamWidth - 1;
+        long[] slot = nextRows[last];
+        int slotTop = nextTop[last];
+        int pos = last;
+        while (pos > 0 && nextScore[pos - 1] < score) {
+            nextRows[pos] = nextRows[pos - 1];
+            nextTop[pos] = nextTop[pos - 1];
+            nextScore[pos] = nextScore[pos - 1];
+            nextLines[pos] = nextLines[pos - 1];
+            nextRootRot[pos] = nextRootRot[pos - 1];
+            nextRootX[pos] = nextRootX[pos - 1];
+            pos--;
+        }
+        int from = Math.min(candidateTop, slotTop);
+        System.arraycopy(candidate, from, slot, from, height - from);
+        nextRows[pos] = slot;
+        nextTop[pos] = candidateTop;
+        nextScore[pos] = score;
+        nextLines[pos] = lines;
+        nextRootRot[pos] = rootRot;
+        nextRootX[pos] = rootX;
+    }
+
+    /** Weighted board features, lines excluded, of rows that are all empty above {@code top}. */
+    double evaluate(long[] rows, int top) {
+        long seen = 0;
+        int holes = 0;
+        for (int x = 0; x < width; x++) heights[x] = 0;
+        for (int y = top; y < height; y++) {
+            long row = rows[y];
+            long fresh = row & ~seen;
+            while (fresh != 0) {
+                heights[Long.numberOfTrailingZeros(fresh)] = height - y;
+                fresh &= fresh - 1;
+            }
+            seen |= row;
+            holes += Long.bitCount(seen & ~row); // Empty cells under something
+        }
+        int aggregate = 0, bumpiness = 0, wells = 0;
+        for (int x = 0; x < width; x++) {
+            int h = heights[x];
+            aggregate += h;
+            if (x + 1 < width) bumpiness += Math.abs(h - heights[x + 1]);
+            int left = x > 0 ? heights[x - 1] : Integer.MAX_VALUE;
+            int right = x + 1 < width ? heights[x + 1] : Integer.MAX_VALUE;
+            int depth = Math.min(left, right) - h;
+            if (depth > 0) wells += depth;
+        }
+        return heightWeight * aggregate + holesWeight * holes + bumpinessWeight * bumpiness + wellsWeight * wells;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.myapplication.engine;
+
+/**
+ * Delayed auto shift (DAS) and auto-repeat rate (ARR) for a held input, independent of
+ * the OS key repeat: a press moves once straight away, then after {@code delayMillis} the
+ * move repeats every {@code repeatMillis}. Holding a newer direction takes over from the
+ * older one. Repeats are stamped with the time they fell due, not the time they were polled.
+ */
+public final class AutoRepeat {
+    private final long delayMillis;
+    private final long repeatMillis;
+    private int held = Input.NONE;
+    private long nextRepeat;
+
+    /**
+     * @param delayMillis  time from the press to the first repeat
+     * @param repeatMillis time between repeats, at least 1
+     */
+    public AutoRepeat(long delayMillis, long repeatMillis) {
+        if (delayMillis < 0 || repeatMillis < 1) {
+            throw new IllegalArgumentException("delay must not be negative and repeat must be positive");
+        }
+        this.delayMillis = delayMillis;
+        this.repeatMillis = repeatMillis;
+    }
+
+    /** Starts holding {@code input}; the caller queues the initial move itself. */
+    public void press(int input, long timeMillis) {
+        held = input;
+        nextRepeat = timeMillis + delayMillis;
+    }
+
+    /** Stops repeating {@code input}, unless a newer press has already taken over. */
+    public void release(int input) {
+        if (held == input) held = Input.NONE;
+    }
+
+    public void releaseAll() {
+        held = Input.NONE;
+    }
+
+    public int held() {
+        return held;
+    }
+
+    /**
+     * Queues every repeat due by {@code nowMillis} and returns when the next one falls due,
+     * or -1 if nothing is held.
+     */
+    public long poll(long nowMillis, InputQueue queue) {
+        if (held == Input.NONE) return -1;
+        // A full queue keeps the remaining repeats due for the next poll
+        while (nextRepeat <= nowMillis && queue.offer(held, nextRepeat)) {
+            nextRepeat += repeatMillis;
+        }
+        return nextRepeat;
+    }
+}
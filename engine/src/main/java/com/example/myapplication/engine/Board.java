@@ -0,0 +1,386 @@
+package com.example.myapplication.engine;
+
+import java.util.Arrays;
+
+/**
+ * The playfield, stored as one {@code long} bitmask per row: bit {@code x} of
+ * {@code rows[y]} is set when cell (x, y) is occupied, so boards up to 64 columns wide
+ * and any number of rows tall are supported. Collision is an AND per piece row and a
+ * full line is a single compare against {@link #fullRowMask()}.
+ *
+ * <p>A parallel byte grid keeps the shape type of every occupied cell so the view can
+ * colour it; the masks are the source of truth for the game rules. The grid's outer array
+ * is a row index into a fixed pool of row arrays: clearing lines moves references, not
+ * cells, and cleared rows are blanked and reused at the top. A skyline of the
+ * topmost occupied row per column is kept up to date by {@link #place} and
+ * {@link #clearFullRows()}, so landing rows can be found without stepping a piece down.
+ * Rows above the skyline are known to be empty, so clearing lines, pushing garbage and
+ * rebuilding the skyline only touch the stack, however tall the board is.
+ */
+public final class Board {
+    /** Widest board a single {@code long} row mask can hold. */
+    public static final int MAX_WIDTH = Long.SIZE;
+    /** Widest board whose rows {@link #packedRow} can pack, 4 bits per cell into a long. */
+    public static final int MAX_PACKED_WIDTH = Long.SIZE / 4;
+    /** Cell value of garbage rows sent by a versus opponent; pieces use shape type + 1. */
+    public static final int GARBAGE = 8;
+
+    private final int width;
+    private final int height;
+    private final long fullRowMask;
+    private final long[] rows;
+    private final byte[][] cells;
+    private final byte[][] clearedRows; // Scratch for row arrays being recycled by clearFullRows
+    private final int[] columnTops;
+    private int version;
+
+    public Board(int width, int height) {
+        if (width < 4 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("width must be in [4, " + MAX_WIDTH + "]: " + width);
+        }
+        if (height < 4) {
+            throw new IllegalArgumentException("height must be at least 4: " + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.fullRowMask = width == Long.SIZE ? -1L : (1L << width) - 1;
+        this.rows = new long[height];
+        this.cells = new byte[height][width];
+        this.clearedRows = new byte[height][];
+        this.columnTops = new int[width];
+        Arrays.fill(columnTops, height);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public long fullRowMask() {
+        return fullRowMask;
+    }
+
+    /** Occupancy mask of row {@code y}. */
+    public long rowMask(int y) {
+        return rows[y];
+    }
+
+    /** Shape type + 1 stored at (x, y), or 0 when the cell is empty. */
+    public int get(int x, int y) {
+        return cells[y][x];
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return (rows[y] & (1L << x)) != 0;
+    }
+
+    /**
+     * Counts changes to the cells: it differs from an earlier value if anything changed since,
+     * so views can cache what they drew from the board. A {@link #copyFrom copy} takes over
+     * the version of the board it copies, so a copy that is still current can be recognized.
+     */
+    public int version() {
+        return version;
+    }
+
+    /** Row of the topmost occupied cell in column {@code x}, or {@link #height()} if it is empty. */
+    public int columnTop(int x) {
+        return columnTops[x];
+    }
+
+    /** Row of the highest occupied cell, or {@link #height()} if the board is empty. */
+    public int stackTop() {
+        int top = height;
+        for (int x = 0; x < width; x++) top = Math.min(top, columnTops[x]);
+        return top;
+    }
+
+    /** Empties every cell without reallocating. */
+    public void clear() {
+        for (int y = stackTop(); y < height; y++) {
+            rows[y] = 0;
+            Arrays.fill(cells[y], (byte) 0);
+        }
+        Arrays.fill(columnTops, height);
+        version++;
+    }
+
+    /** Overwrites this board with the contents of {@code other}, which must be the same size. */
+    public void copyFrom(Board other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("board sizes differ");
+        }
+        // Rows above both stacks are empty on both boards
+        int from = Math.min(stackTop(), other.stackTop());
+        System.arraycopy(other.rows, from, rows, from, height - from);
+        for (int y = from; y < height; y++) {
+            System.arraycopy(other.cells[y], 0, cells[y], 0, width);
+        }
+        System.arraycopy(other.columnTops, 0, columnTops, 0, width);
+        version = other.version; // Same cells, same version
+    }
+
+    /**
+     * Returns true if a piece whose box rows are {@code pieceRows} (bit c = column c) would
+     * overlap a wall, the floor or an occupied cell with its box's top-left corner at (x, y).
+     * {@code minCol}/{@code maxCol} are the piece's leftmost and rightmost occupied box
+     * columns. Rows above the board only collide with the walls.
+     */
+    public boolean collides(int[] pieceRows, int minCol, int maxCol, int x, int y) {
+        return collides(rows, width, height, pieceRows, minCol, maxCol, x, y);
+    }
+
+    /** {@link #collides(int[], int, int, int, int)} against bare row masks, for scratch boards. */
+    static boolean collides(long[] rows, int width, int height, int[] pieceRows, int minCol, int maxCol, int x, int y) {
+        if (x + minCol < 0 || x + maxCol >= width) {
+            return true;
+        }
+        for (int r = 0; r < pieceRows.length; r++) {
+            int mask = pieceRows[r];
+            if (mask == 0) continue;
+            int by = y + r;
+            if (by >= height) {
+                return true;
+            }
+            if (by >= 0 && (rows[by] & shift(mask, x)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes the piece into the board, tagging its cells with {@code value} (shape type + 1). */
+    public void place(int[] pieceRows, int x, int y, int value) {
+        for (int r = 0; r < pieceRows.length; r++) {
+            int by = y + r;
+            if (by < 0 || by >= height) continue; // Cells above the board are dropped
+            long mask = shift(pieceRows[r], x);
+            rows[by] |= mask;
+            byte[] row = cells[by];
+            while (mask != 0) {
+                int bx = Long.numberOfTrailingZeros(mask);
+                row[bx] = (byte) value;
+                if (by < columnTops[bx]) columnTops[bx] = by;
+                mask &= mask - 1;
+            }
+        }
+        version++;
+    }
+
+    // A box may hang past the left wall while its occupied columns stay inside
+    static long shift(int mask, int x) {
+        return x >= 0 ? (long) mask << x : mask >>> -x;
+    }
+
+    /** Row {@code y} packed 4 bits per cell, cell x in bits 4x to 4x + 3; see {@link #get}. */
+    public long packedRow(int y) {
+        checkPackable();
+        long packed = 0;
+        byte[] row = cells[y];
+        for (long mask = rows[y]; mask != 0; mask &= mask - 1) {
+            int x = Long.numberOfTrailingZeros(mask);
+            packed |= (long) row[x] << (4 * x);
+        }
+        return packed;
+    }
+
+    /** Overwrites row {@code y} with {@link #packedRow} output, e.g. from a save or a network peer. */
+    public void setPackedRow(int y, long packed) {
+        checkPackable();
+        byte[] row = cells[y];
+        for (int x = 0; x < width; x++) {
+            row[x] = (byte) ((packed >>> (4 * x)) & 0xF);
+        }
+        rowChanged(y);
+    }
+
+    /**
+     * Overwrites row {@code y} with {@code values}, one cell value per column (0 for empty),
+     * for rows too wide for {@link #setPackedRow}.
+     */
+    public void setRow(int y, byte[] values) {
+        System.arraycopy(values, 0, cells[y], 0, width);
+        rowChanged(y);
+    }
+
+    // Rebuilds the mask of row y from its cells and fixes up the skyline
+    private void rowChanged(int y) {
+        version++;
+        long before = rows[y];
+        long mask = 0;
+        byte[] row = cells[y];
+        for (int x = 0; x < width; x++) {
+            if (row[x] != 0) {
+                mask |= 1L << x;
+                if (y < columnTops[x]) columnTops[x] = y;
+            }
+        }
+        rows[y] = mask;
+        // A column that lost its top cell has to look further down for the new one
+        long removed = before & ~mask;
+        for (; removed != 0; removed &= removed - 1) {
+            int x = Long.numberOfTrailingZeros(removed);
+            if (columnTops[x] == y) {
+                int top = y + 1;
+                while (top < height && (rows[top] & (1L << x)) == 0) top++;
+                columnTops[x] = top;
+            }
+        }
+    }
+
+    /** Removes row {@code y}, shifting the rows above it down by one and blanking the top row. */
+    public void removeRow(int y) {
+        int top = stackTop();
+        if (y < top) return; // Already empty, and so is everything above it
+        byte[] removed = cells[y];
+        for (int yy = y; yy > top; yy--) {
+            rows[yy] = rows[yy - 1];
+            cells[yy] = cells[yy - 1];
+        }
+        Arrays.fill(removed, (byte) 0);
+        rows[top] = 0;
+        cells[top] = removed;
+        rebuildColumnTops(top); // Tops only move down
+        version++;
+    }
+
+    /**
+     * Shifts every row up by {@code lines} and fills the bottom with garbage rows that are full
+     * except at {@code holeColumn}. Returns true if occupied cells were pushed off the top.
+     */
+    public boolean pushUp(int lines, int holeColumn) {
+        lines = Math.min(lines, height);
+        int top = stackTop();
+        boolean overflow = top < lines;
+        // Rows that move up out of the stack, or off the top, are recycled as garbage rows
+        int from = Math.max(0, top - lines);
+        for (int y = from; y < from + lines; y++) {
+            clearedRows[y - from] = cells[y];
+        }
+        for (int y = from; y < height - lines; y++) {
+            rows[y] = rows[y + lines];
+            cells[y] = cells[y + lines];
+        }
+        long garbageMask = fullRowMask & ~(1L << holeColumn);
+        for (int i = 0; i < lines; i++) {
+            int y = height - lines + i;
+            byte[] row = clearedRows[i];
+            clearedRows[i] = null;
+            Arrays.fill(row, (byte) GARBAGE);
+            row[holeColumn] = 0;
+            rows[y] = garbageMask;
+            cells[y] = row;
+        }
+        rebuildColumnTops(from); // Tops move up by at most lines
+        version++;
+        return overflow;
+    }
+
+    private void checkPackable() {
+        if (width > MAX_PACKED_WIDTH) {
+            throw new IllegalStateException("rows of width " + width + " cannot be packed");
+        }
+    }
+
+    /** 64-bit FNV-1a hash of every cell, for checking two boards hold the same state. */
+    public long contentHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                hash = (hash ^ cells[y][x]) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /** Copies the occupancy masks into {@code dest}, which must hold {@link #height()} rows. */
+    public void copyRowsTo(long[] dest) {
+        System.arraycopy(rows, 0, dest, 0, height);
+    }
+
+    /** Copies the occupancy masks of rows {@code fromY} to the bottom into the same rows of {@code dest}. */
+    public void copyRowsTo(long[] dest, int fromY) {
+        System.arraycopy(rows, fromY, dest, fromY, height - fromY);
+    }
+
+    /**
+     * Removes every full row, shifting the rows above down, and returns how many were cleared.
+     * Only row references move; the cleared rows' arrays are blanked and reused at the top
+     * of the stack. Rows above the stack are empty and left alone.
+     */
+    public int clearFullRows() {
+        int cleared = 0;
+        int top = stackTop();
+        // Compact from the bottom up: surviving rows slide down over the cleared ones
+        int write = height - 1;
+        for (int read = height - 1; read >= top; read--) {
+            if (rows[read] == fullRowMask) {
+                clearedRows[cleared++] = cells[read];
+                continue;
+            }
+            if (write != read) {
+                rows[write] = rows[read];
+                cells[write] = cells[read];
+            }
+            write--;
+        }
+        if (cleared == 0) return 0;
+        // The top slots still alias rows that moved down; hand them the blanked cleared rows
+        for (int i = 0; i < cleared; i++) {
+            byte[] row = clearedRows[i];
+            Arrays.fill(row, (byte) 0);
+            rows[write] = 0;
+            cells[write--] = row;
+            clearedRows[i] = null;
+        }
+        updateColumnTops();
+        version++;
+        return cleared;
+    }
+
+    // Rescans from fromY, which must be at or above every column's new top
+    private void rebuildColumnTops(int fromY) {
+        Arrays.fill(columnTops, fromY);
+        updateColumnTops();
+    }
+
+    // Rescans only the rows from the old highest top down, stopping once every column is found
+    private void updateColumnTops() {
+        int y = stackTop();
+        long pending = fullRowMask;
+        for (; y < height && pending != 0; y++) {
+            long found = rows[y] & pending;
+            pending &= ~found;
+            while (found != 0) {
+                columnTops[Long.numberOfTrailingZeros(found)] = y;
+                found &= found - 1;
+            }
+        }
+        while (pending != 0) {
+            columnTops[Long.numberOfTrailingZeros(pending)] = height;
+            pending &= pending - 1;
+        }
+    }
+
+    /** {@link #clearFullRows()} on bare row masks, for scratch boards. */
+    static int clearFullRows(long[] rows, int height, long fullRowMask) {
+        return clearFullRows(rows, 0, height, fullRowMask);
+    }
+
+    /** {@link #clearFullRows(long[], int, long)} for rows that are all empty above {@code top}. */
+    static int clearFullRows(long[] rows, int top, int height, long fullRowMask) {
+        int write = height - 1;
+        for (int read = height - 1; read >= top; read--) {
+            if (rows[read] == fullRowMask) continue;
+            rows[write--] = rows[read];
+        }
+        int cleared = write + 1 - top;
+        for (int y = write; y >= top; y--) {
+            rows[y] = 0;
+        }
+        return cleared;
+    }
+}
@@ -0,0 +1,506 @@
+package com.example.myapplication.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless Tetris rules: spawning, movement, rotation, locking and line clears.
+ * Has no Android dependencies so it can be driven and profiled on a plain JVM;
+ * the app only renders its state and forwards input to it.
+ */
+public class GameEngine implements GameState {
+    /** Default board size; each game can pick its own with {@link #reset(long, int, int)}. */
+    public static final int BOARD_WIDTH = 10;
+    public static final int BOARD_HEIGHT = 20;
+    /** Tallest board a game can use; saves store rows and positions in 16 bits. */
+    public static final int MAX_BOARD_HEIGHT = 4096;
+
+    private static final int STATE_MAGIC = 0x54534156; // "TSAV"
+    private static final byte STATE_VERSION = 3; // 2: 4 bits per cell, for garbage; 3: board size
+    private static final int STATE_HEADER_SIZE = 4 + 1 + 8 + 3 * 4 + 4 + 2 + 1 + 1 + 2 + 2;
+    /** Largest blob {@link #writeState} can produce, for the widest and tallest board. */
+    public static final int MAX_STATE_SIZE = STATE_HEADER_SIZE + (Board.MAX_WIDTH + 1) / 2 * MAX_BOARD_HEIGHT;
+    private static final int[] NO_DEAL = {};
+
+    public static final int[][][] SHAPES = {
+            {{1, 1, 1, 1}}, // I
+            {{1, 1}, {1, 1}}, // O
+            {{1, 1, 1}, {0, 1, 0}}, // T
+            {{1, 1, 1}, {1, 0, 0}}, // L
+            {{1, 1, 1}, {0, 0, 1}}, // J
+            {{1, 1, 0}, {0, 1, 1}}, // S
+            {{0, 1, 1}, {1, 1, 0}}  // Z
+    };
+
+    /**
+     * Board changes that a copy of the board elsewhere, such as a versus opponent's view,
+     * cannot work out from the cells alone. Called on the thread driving the engine.
+     */
+    public interface Listener {
+        /** Row {@code y} is about to be cleared; rows of one lock are reported top to bottom. */
+        void onRowCleared(int y);
+
+        /** A piece locked and its lines were cleared; the next piece has not spawned yet. */
+        void onLock(int linesCleared);
+
+        /** {@link #addGarbage} pushed the stack up. */
+        void onGarbageAdded(int lines, int holeColumn);
+    }
+
+    private Board board;
+    private final Random random;
+    private Listener[] listeners = new Listener[0]; // Copied on change, so notifying never allocates
+    // Piece position is the top-left corner of its rotation box, see Pieces
+    private int shapeX, shapeY, shapeType, rotation;
+    private int nextShapeType; // Preview, drawn one piece ahead from the same random stream
+    private int[] deal = NO_DEAL; // A puzzle's sequence, dealt before the generator's pieces
+    private int dealt;
+    private int score = 0;
+    private int linesCleared, piecesPlaced;
+    private boolean isGameOver = false;
+
+    public GameEngine() {
+        this(new PieceRandom());
+    }
+
+    /**
+     * @param random piece generator; pass a {@link PieceRandom} for the game to be saveable
+     *               with {@link #writeState}
+     */
+    public GameEngine(Random random) {
+        this(BOARD_WIDTH, BOARD_HEIGHT, random);
+    }
+
+    public GameEngine(int width, int height, Random random) {
+        this.board = newBoard(width, height);
+        this.random = random;
+        reset();
+    }
+
+    private static Board newBoard(int width, int height) {
+        if (height > MAX_BOARD_HEIGHT) {
+            throw new IllegalArgumentException("height must be at most " + MAX_BOARD_HEIGHT + ": " + height);
+        }
+        return new Board(width, height);
+    }
+
+    /** Clears the board and score and spawns the first piece. */
+    public void reset() {
+        deal = NO_DEAL;
+        dealt = 0;
+        restart();
+    }
+
+    private void restart() {
+        board.clear();
+        score = 0;
+        linesCleared = 0;
+        piecesPlaced = 0;
+        isGameOver = false;
+        nextShapeType = drawShape();
+        spawnShape();
+    }
+
+    /** Reseeds the piece generator and starts over; the same seed deals the same pieces. */
+    public void reset(long seed) {
+        random.setSeed(seed);
+        reset();
+    }
+
+    /**
+     * Starts over on a board of the given size, reallocating it only if the size changed.
+     * Callers holding on to {@link #getBoard()} must fetch it again.
+     */
+    public void reset(long seed, int width, int height) {
+        resize(width, height);
+        reset(seed);
+    }
+
+    /**
+     * Starts {@code puzzle} on a board {@code height} rows tall, with its preset rows at the
+     * bottom as garbage, dealing its sequence before the generator's pieces. The game cannot
+     * be saved until the whole sequence has been dealt.
+     */
+    public void reset(Puzzle puzzle, int height) {
+        if (height < puzzle.rowCount() + 4) throw new IllegalArgumentException("height " + height);
+        resize(puzzle.width(), height);
+        deal = new int[puzzle.pieceCount()];
+        for (int i = 0; i < deal.length; i++) deal[i] = puzzle.piece(i);
+        dealt = 0;
+        restart(); // Spawns at the top, above the preset
+        byte[] cells = new byte[puzzle.width()];
+        for (int y = 0; y < puzzle.rowCount(); y++) {
+            for (int x = 0; x < cells.length; x++) {
+                cells[x] = (byte) ((puzzle.row(y) >>> x & 1) != 0 ? Board.GARBAGE : 0);
+            }
+            board.setRow(height - puzzle.rowCount() + y, cells);
+        }
+    }
+
+    private void resize(int width, int height) {
+        if (width != board.width() || height != board.height()) board = newBoard(width, height);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getShapeX() {
+        return shapeX;
+    }
+
+    public int getShapeY() {
+        return shapeY;
+    }
+
+    public int getShapeType() {
+        return shapeType;
+    }
+
+    /** Bytes {@link #writeState} would write right now; grows with the stack, not the board. */
+    public int stateSize() {
+        return STATE_HEADER_SIZE + (board.width() + 1) / 2 * (board.height() - board.stackTop());
+    }
+
+    /**
+     * Writes the whole game into {@link #stateSize()} bytes: the board size, the current and
+     * next piece, position, rotation, counters, the generator state, and the rows from the top
+     * of the stack down packed 4 bits per cell (shape type + 1 or garbage, so the colours
+     * survive).
+     *
+     * @throws IllegalStateException if the engine was not built with a {@link PieceRandom}
+     */
+    public void writeState(ByteBuffer out) {
+        if (!(random instanceof PieceRandom)) {
+            throw new IllegalStateException("Only a PieceRandom's state can be saved");
+        }
+        if (dealt < deal.length) throw new IllegalStateException("A puzzle's sequence cannot be saved");
+        out.putInt(STATE_MAGIC);
+        out.put(STATE_VERSION);
+        out.putLong(((PieceRandom) random).getState());
+        out.putInt(score);
+        out.putInt(linesCleared);
+        out.putInt(piecesPlaced);
+        out.put((byte) shapeType);
+        out.put((byte) nextShapeType);
+        out.put((byte) rotation);
+        out.put((byte) shapeX);
+        out.putShort((short) shapeY);
+        out.put((byte) (isGameOver ? 1 : 0));
+        out.put((byte) board.width());
+        out.putShort((short) board.height());
+        int top = board.stackTop();
+        out.putShort((short) top);
+        for (int y = top; y < board.height(); y++) {
+            for (int x = 0; x < board.width(); x += 2) {
+                int high = x + 1 < board.width() ? board.get(x + 1, y) : 0;
+                out.put((byte) (board.get(x, y) | high << 4));
+            }
+        }
+    }
+
+    /**
+     * Restores a game written by {@link #writeState}. Returns false, leaving the engine
+     * untouched, if the blob is not a saved game of this version, or if the piece lies
+     * outside the board or, in a game still running, overlaps the stack.
+     */
+    public boolean readState(ByteBuffer in) {
+        if (!(random instanceof PieceRandom)) {
+            throw new IllegalStateException("Only a PieceRandom's state can be restored");
+        }
+        if (in.remaining() < STATE_HEADER_SIZE || in.getInt(in.position()) != STATE_MAGIC
+                || in.get(in.position() + 4) != STATE_VERSION) {
+            return false;
+        }
+        int start = in.position();
+        in.position(start + 5);
+        long randomState = in.getLong();
+        int savedScore = in.getInt();
+        int savedLines = in.getInt();
+        int savedPieces = in.getInt();
+        int type = in.get(), next = in.get(), rot = in.get();
+        int x = in.get(), y = in.getShort();
+        boolean over = in.get() != 0;
+        int width = in.get() & 0xFF, height = in.getShort() & 0xFFFF, top = in.getShort() & 0xFFFF;
+        int rowBytes = (width + 1) / 2;
+        if (type < 0 || type >= SHAPES.length || next < 0 || next >= SHAPES.length || rot < 0 || rot > 3
+                || width < 4 || width > Board.MAX_WIDTH || height < 4 || height > MAX_BOARD_HEIGHT
+                || top > height || in.remaining() < rowBytes * (height - top)
+                || x + Pieces.minCol(type, rot) < 0 || x + Pieces.maxCol(type, rot) >= width
+                || y < -Pieces.CELLS || y + Pieces.maxRow(type, rot) >= height
+                || !over && overlapsSavedRows(in, in.position(), rowBytes, top, type, rot, x, y)) {
+            in.position(start);
+            return false;
+        }
+        ((PieceRandom) random).setState(randomState);
+        deal = NO_DEAL;
+        dealt = 0;
+        score = savedScore;
+        linesCleared = savedLines;
+        piecesPlaced = savedPieces;
+        shapeType = type;
+        nextShapeType = next;
+        rotation = rot;
+        shapeX = x;
+        shapeY = y;
+        isGameOver = over;
+        resize(width, height);
+        board.clear();
+        byte[] values = new byte[width + 1];
+        for (int row = top; row < height; row++) {
+            for (int i = 0; i < rowBytes; i++) {
+                int b = in.get();
+                values[2 * i] = (byte) (b & 0xF);
+                values[2 * i + 1] = (byte) (b >>> 4 & 0xF);
+            }
+            board.setRow(row, values);
+        }
+        return true;
+    }
+
+    // Whether a piece at (x, y) covers a filled cell of the saved rows starting at rowsAt, the
+    // first of them row top; checked before anything is restored, so a bad save changes nothing
+    private static boolean overlapsSavedRows(ByteBuffer in, int rowsAt, int rowBytes, int top,
+                                             int type, int rot, int x, int y) {
+        int[] cellsX = Pieces.cellsX(type, rot), cellsY = Pieces.cellsY(type, rot);
+        for (int c = 0; c < Pieces.CELLS; c++) {
+            int col = x + cellsX[c], row = y + cellsY[c];
+            if (row < top) continue; // Above the stack everything is empty
+            int b = in.get(rowsAt + (row - top) * rowBytes + col / 2);
+            if ((col % 2 == 0 ? b & 0xF : b >>> 4 & 0xF) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Type of the piece that spawns after the current one locks. */
+    public int getNextShapeType() {
+        return nextShapeType;
+    }
+
+    /** Rotation index into {@link Pieces}, 0 being the spawn orientation. */
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    /** Number of pieces locked into the board so far. */
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    private void spawnShape() {
+        shapeType = nextShapeType;
+        nextShapeType = drawShape(); // The puzzle's next piece, or a random one
+        rotation = 0;
+        shapeX = spawnX(shapeType); // Center the shape horizontally
+        shapeY = spawnY(shapeType); // Top filled row starts at the top of the board
+
+        // If the new shape cannot be placed the stack has reached the top
+        if (!canPlaceShape()) {
+            isGameOver = true;
+        }
+    }
+
+    private int drawShape() {
+        return dealt < deal.length ? deal[dealt++] : random.nextInt(SHAPES.length);
+    }
+
+    /** Column a piece of the given type spawns at on this engine's board. */
+    public int spawnX(int type) {
+        return board.width() / 2 - Pieces.boxSize(type) / 2;
+    }
+
+    /** Row a piece of the given type spawns at. */
+    public static int spawnY(int type) {
+        return -Pieces.minRow(type, 0);
+    }
+
+    public boolean canPlaceShape() {
+        return canPlace(rotation, shapeX, shapeY);
+    }
+
+    private boolean canPlace(int rot, int x, int y) {
+        return !board.collides(Pieces.rows(shapeType, rot),
+                Pieces.minCol(shapeType, rot), Pieces.maxCol(shapeType, rot), x, y);
+    }
+
+    private void mergeShape() {
+        // Store shape type + 1 (0 is empty)
+        board.place(Pieces.rows(shapeType, rotation), shapeX, shapeY, shapeType + 1);
+    }
+
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(Listener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                Listener[] rest = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest;
+                return;
+            }
+        }
+    }
+
+    private int clearLines() {
+        if (listeners.length != 0) {
+            for (int y = board.stackTop(); y < board.height(); y++) {
+                if (board.rowMask(y) != board.fullRowMask()) continue;
+                for (Listener listener : listeners) listener.onRowCleared(y);
+            }
+        }
+        int cleared = board.clearFullRows();
+        linesCleared += cleared;
+        score += cleared * 100; // Update score based on lines cleared
+        return cleared;
+    }
+
+    /**
+     * Raises the stack by {@code lines} garbage rows with a gap at {@code holeColumn}, as sent by
+     * a versus opponent. Meant to be called from {@link Listener#onLock}, before the next piece
+     * spawns. Pushing blocks off the top ends the game.
+     */
+    public void addGarbage(int lines, int holeColumn) {
+        if (isGameOver || lines <= 0) return;
+        if (board.pushUp(lines, holeColumn)) isGameOver = true;
+        for (Listener listener : listeners) listener.onGarbageAdded(lines, holeColumn);
+    }
+
+    /**
+     * Moves the piece down one row, or locks it, clears lines and spawns the next one
+     * when it cannot fall any further. Returns true if the piece moved.
+     */
+    public boolean moveDown() {
+        if (isGameOver) return false;
+        shapeY++;
+        if (canPlaceShape()) return true;
+        shapeY--; // Move it back up
+        lock();
+        return false;
+    }
+
+    /** Drops the piece straight to its landing row and locks it there. */
+    public void hardDrop() {
+        if (isGameOver) return;
+        shapeY = getGhostY();
+        lock();
+    }
+
+    private void lock() {
+        mergeShape();
+        piecesPlaced++;
+        int cleared = clearLines();
+        for (Listener listener : listeners) listener.onLock(cleared);
+        if (!isGameOver) spawnShape();
+    }
+
+    /**
+     * Row the piece would land on if dropped straight down, for the ghost preview and hard
+     * drop. Looks up the board's skyline once per occupied piece column; only a piece tucked
+     * under an overhang falls back to stepping down row by row.
+     */
+    public int getGhostY() {
+        int[] bottoms = Pieces.bottoms(shapeType, rotation);
+        int landing = Integer.MAX_VALUE;
+        for (int c = Pieces.minCol(shapeType, rotation); c <= Pieces.maxCol(shapeType, rotation); c++) {
+            int bottom = bottoms[c];
+            if (bottom < 0) continue;
+            int top = board.columnTop(shapeX + c);
+            if (shapeY + bottom >= top) return stepDown(); // Below the skyline in this column
+            landing = Math.min(landing, top - 1 - bottom);
+        }
+        return landing;
+    }
+
+    private int stepDown() {
+        int y = shapeY;
+        while (canPlace(rotation, shapeX, y + 1)) y++;
+        return y;
+    }
+
+    /**
+     * Applies one {@link Input} code. Returns true if the piece moved or rotated; a lock
+     * (moving down onto the stack, or any hard drop) returns false.
+     */
+    public boolean apply(int input) {
+        switch (input) {
+            case Input.MOVE_LEFT:
+                return moveLeft();
+            case Input.MOVE_RIGHT:
+                return moveRight();
+            case Input.ROTATE:
+                return rotate();
+            case Input.ROTATE_CCW:
+                return rotateCounterClockwise();
+            case Input.MOVE_DOWN:
+            case Input.GRAVITY:
+                return moveDown();
+            case Input.HARD_DROP:
+                hardDrop();
+                return false;
+            default:
+                throw new IllegalArgumentException("Unknown input: " + input);
+        }
+    }
+
+    /** True if gravity would move the piece rather than lock it. */
+    public boolean canMoveDown() {
+        return !isGameOver && canPlace(rotation, shapeX, shapeY + 1);
+    }
+
+    public boolean moveLeft() {
+        return shift(-1);
+    }
+
+    public boolean moveRight() {
+        return shift(1);
+    }
+
+    private boolean shift(int dx) {
+        if (isGameOver) return false;
+        shapeX += dx;
+        if (canPlaceShape()) return true;
+        shapeX -= dx; // Blocked, move it back
+        return false;
+    }
+
+    /** Rotates the piece clockwise, trying the SRS wall kicks when blocked. */
+    public boolean rotate() {
+        return rotateTo((rotation + 1) & 3);
+    }
+
+    public boolean rotateCounterClockwise() {
+        return rotateTo((rotation + 3) & 3);
+    }
+
+    private boolean rotateTo(int to) {
+        if (isGameOver) return false;
+        int[] kicks = Pieces.kicks(shapeType, rotation, to);
+        for (int i = 0; i < kicks.length; i += 2) {
+            int x = shapeX + kicks[i];
+            int y = shapeY + kicks[i + 1];
+            if (canPlace(to, x, y)) {
+                rotation = to;
+                shapeX = x;
+                shapeY = y;
+                return true;
+            }
+        }
+        return false; // Every kick is blocked, keep the old state
+    }
+}
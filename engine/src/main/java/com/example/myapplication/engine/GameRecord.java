@@ -0,0 +1,83 @@
+package com.example.myapplication.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One finished game as kept by {@link StatsStore}: a fixed-size record, so the log can be
+ * read from any record boundary without scanning what comes before it.
+ */
+public final class GameRecord {
+    /** Bytes per record in the log. */
+    public static final int SIZE = 40;
+    /** Set for versus games, whose garbage was not dealt by the seed. */
+    public static final int FLAG_VERSUS = 1;
+    /** Set when the game was restored after process death, so the seed does not replay it. */
+    public static final int FLAG_RESUMED = 2;
+
+    private final long seed;
+    private final int score, lines, pieces;
+    private final long durationMillis;
+    private final long finishedAt;
+    private final int flags;
+
+    public GameRecord(long seed, int score, int lines, int pieces, long durationMillis, long finishedAt, int flags) {
+        this.seed = seed;
+        this.score = score;
+        this.lines = lines;
+        this.pieces = pieces;
+        this.durationMillis = durationMillis;
+        this.finishedAt = finishedAt;
+        this.flags = flags;
+    }
+
+    /** The final score, lines and pieces of {@code engine}. */
+    public static GameRecord of(GameEngine engine, long seed, long durationMillis, long finishedAt, int flags) {
+        return new GameRecord(seed, engine.getScore(), engine.getLinesCleared(), engine.getPiecesPlaced(),
+                durationMillis, finishedAt, flags);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public int getPieces() {
+        return pieces;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /** Wall-clock end of the game, in {@link System#currentTimeMillis()} time. */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    void write(ByteBuffer out) {
+        out.putLong(seed).putInt(score).putInt(lines).putInt(pieces).putLong(durationMillis).putLong(finishedAt)
+                .putInt(flags);
+    }
+
+    static GameRecord read(ByteBuffer in) {
+        return new GameRecord(in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getLong(), in.getLong(),
+                in.getInt());
+    }
+
+    /** Leaderboard order: higher score first, then the earlier game, which got there first. */
+    boolean ranksAbove(GameRecord other) {
+        if (score != other.score) return score > other.score;
+        return finishedAt < other.finishedAt;
+    }
+}
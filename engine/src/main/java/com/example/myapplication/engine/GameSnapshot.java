@@ -0,0 +1,98 @@
+package com.example.myapplication.engine;
+
+/**
+ * A copy of a game at one instant, for handing to a thread that only draws it. The engine's
+ * thread fills a snapshot with {@link #copyFrom} and then publishes it, e.g. through a
+ * {@link TripleBuffer}; from then on it is read-only until handed back to be refilled.
+ *
+ * <p>Copying is cheap: only the rows from the top of the stack down, and not even those if
+ * the board has not changed since this snapshot last copied it.
+ */
+public final class GameSnapshot implements GameState {
+    private Board board = new Board(GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+    private int shapeX, shapeY, shapeType, rotation, nextShapeType, ghostY;
+    private int score, linesCleared, piecesPlaced;
+    private boolean gameOver, canMoveDown;
+
+    /** Overwrites this snapshot with {@code engine}'s current game. Allocates only when the board size changed. */
+    public void copyFrom(GameEngine engine) {
+        Board source = engine.getBoard();
+        if (source.width() != board.width() || source.height() != board.height()) {
+            board = new Board(source.width(), source.height());
+            board.copyFrom(source);
+        } else if (board.version() != source.version()) {
+            board.copyFrom(source);
+        }
+        shapeX = engine.getShapeX();
+        shapeY = engine.getShapeY();
+        shapeType = engine.getShapeType();
+        rotation = engine.getRotation();
+        nextShapeType = engine.getNextShapeType();
+        ghostY = engine.getGhostY();
+        score = engine.getScore();
+        linesCleared = engine.getLinesCleared();
+        piecesPlaced = engine.getPiecesPlaced();
+        gameOver = engine.isGameOver();
+        canMoveDown = engine.canMoveDown();
+    }
+
+    @Override
+    public Board getBoard() {
+        return board;
+    }
+
+    @Override
+    public int getShapeX() {
+        return shapeX;
+    }
+
+    @Override
+    public int getShapeY() {
+        return shapeY;
+    }
+
+    @Override
+    public int getShapeType() {
+        return shapeType;
+    }
+
+    @Override
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public int getNextShapeType() {
+        return nextShapeType;
+    }
+
+    @Override
+    public int getGhostY() {
+        return ghostY;
+    }
+
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    @Override
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    @Override
+    public boolean canMoveDown() {
+        return canMoveDown;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.myapplication.engine;
+
+/**
+ * What a renderer needs to draw a game: the live {@link GameEngine} on its own thread, or a
+ * {@link GameSnapshot} of it published to another.
+ */
+public interface GameState {
+    Board getBoard();
+
+    int getShapeX();
+
+    int getShapeY();
+
+    int getShapeType();
+
+    /** Rotation index into {@link Pieces}, 0 being the spawn orientation. */
+    int getRotation();
+
+    int getNextShapeType();
+
+    /** Row the falling piece would land on if dropped straight down. */
+    int getGhostY();
+
+    int getScore();
+
+    int getLinesCleared();
+
+    int getPiecesPlaced();
+
+    boolean isGameOver();
+
+    boolean canMoveDown();
+}
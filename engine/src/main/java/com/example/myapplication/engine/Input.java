@@ -0,0 +1,21 @@
+package com.example.myapplication.engine;
+
+/**
+ * Codes for everything that can change the game, passed to {@link GameEngine#apply}.
+ * Gravity counts as an input so that a seed plus the input stream fully determines a game.
+ */
+public final class Input {
+    public static final int NONE = -1;
+    public static final int MOVE_LEFT = 0;
+    public static final int MOVE_RIGHT = 1;
+    public static final int ROTATE = 2;
+    public static final int ROTATE_CCW = 3;
+    public static final int MOVE_DOWN = 4; // Soft drop by the player
+    public static final int GRAVITY = 5;
+    public static final int HARD_DROP = 6;
+    /** Number of input codes; codes are 0 to COUNT - 1. */
+    public static final int COUNT = 7;
+
+    private Input() {
+    }
+}
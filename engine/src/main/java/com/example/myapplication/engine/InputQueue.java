@@ -0,0 +1,67 @@
+package com.example.myapplication.engine;
+
+/**
+ * Fixed-capacity FIFO of timestamped input codes. Input handlers append intents the moment
+ * they happen and the game tick drains them in order, so nothing waits for a finger to
+ * lift and no input is lost between ticks. Not thread-safe; never allocates after
+ * construction.
+ */
+public final class InputQueue {
+    private final int[] inputs;
+    private final long[] times;
+    private final int mask;
+    private int head, tail; // head is the next to poll, tail the next free slot
+    private long lastTime;
+
+    /** @param capacity rounded up to a power of two */
+    public InputQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        inputs = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /** Appends an input; returns false and drops it if the queue is full. */
+    public boolean offer(int input, long timeMillis) {
+        if (tail - head == inputs.length) return false;
+        inputs[tail & mask] = input;
+        times[tail & mask] = timeMillis;
+        tail++;
+        return true;
+    }
+
+    /** Removes and returns the oldest input, or {@link Input#NONE} if empty. */
+    public int poll() {
+        if (head == tail) return Input.NONE;
+        lastTime = times[head & mask];
+        return inputs[head++ & mask];
+    }
+
+    /** Returns the oldest input without removing it, or {@link Input#NONE} if empty. */
+    public int peek() {
+        return head == tail ? Input.NONE : inputs[head & mask];
+    }
+
+    /** Timestamp of the input {@link #peek} returns. */
+    public long peekTime() {
+        return times[head & mask];
+    }
+
+    /** Timestamp of the input last returned by {@link #poll}. */
+    public long lastTime() {
+        return lastTime;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public int size() {
+        return tail - head;
+    }
+
+    public void clear() {
+        head = tail;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.myapplication.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link InputQueue} for handing inputs from one thread to another: a fixed-capacity ring of
+ * timestamped codes with exactly one producer and one consumer, lock-free and never
+ * allocating. Each side only writes its own index, and publishes it with an ordered store
+ * after the slot it covers is written or read.
+ */
+public final class InputRing {
+    private final int[] inputs;
+    private final long[] times;
+    private final int mask;
+    private final AtomicInteger head = new AtomicInteger(); // Next to poll; written by the consumer
+    private final AtomicInteger tail = new AtomicInteger(); // Next free slot; written by the producer
+    private long lastTime; // Consumer only
+
+    /** @param capacity rounded up to a power of two */
+    public InputRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        inputs = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /** Appends a code; returns false and drops it if the ring is full. Producer thread only. */
+    public boolean offer(int input, long time) {
+        int t = tail.get();
+        if (t - head.get() == inputs.length) return false;
+        inputs[t & mask] = input;
+        times[t & mask] = time;
+        tail.lazySet(t + 1); // The slot's writes become visible no later than the new tail
+        return true;
+    }
+
+    /** Removes and returns the oldest code, or {@link Input#NONE} if empty. Consumer thread only. */
+    public int poll() {
+        int h = head.get();
+        if (h == tail.get()) return Input.NONE;
+        int input = inputs[h & mask];
+        lastTime = times[h & mask];
+        head.lazySet(h + 1); // Frees the slot only after it was read
+        return input;
+    }
+
+    /** Timestamp of the code last returned by {@link #poll}. Consumer thread only. */
+    public long lastTime() {
+        return lastTime;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
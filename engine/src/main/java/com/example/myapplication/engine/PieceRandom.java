@@ -0,0 +1,46 @@
+package com.example.myapplication.engine;
+
+import java.util.Random;
+
+/**
+ * {@link Random} with the same generator and the same sequences for a given seed, whose
+ * internal state can be read and restored. Used by the engine so a saved game continues
+ * with exactly the pieces it would have dealt.
+ */
+public final class PieceRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state; // Set by Random's constructor through setSeed
+
+    public PieceRandom() {
+        super();
+    }
+
+    public PieceRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed); // Clears the cached nextGaussian
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /** The 48-bit generator state; {@link #setState} with it resumes the same sequence. */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
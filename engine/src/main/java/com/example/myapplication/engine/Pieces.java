@@ -0,0 +1,190 @@
+package com.example.myapplication.engine;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed rotation states and SRS wall kicks for every entry in {@link GameEngine#SHAPES}.
+ *
+ * <p>Each shape is embedded in its SRS bounding box (4x4 for I, 2x2 for O, 3x3 otherwise)
+ * and rotated clockwise four times. Rotation 0 is the orientation listed in {@code SHAPES},
+ * which is the piece's spawn orientation. Lookups are plain array reads, so rotating and
+ * kicking never allocate.
+ */
+public final class Pieces {
+    public static final int COUNT = GameEngine.SHAPES.length;
+    public static final int ROTATIONS = 4;
+    public static final int CELLS = 4;
+
+    private static final int I = 0;
+    private static final int O = 1;
+
+    // SRS state of each shape's spawn orientation: T, L and J are listed upside down
+    private static final int[] SPAWN_STATE = {0, 0, 2, 2, 2, 0, 0};
+
+    // SRS kick offsets as (dx, dy) pairs with y pointing up, indexed [from state][to state]
+    private static final int[][][] JLSTZ_KICKS = new int[ROTATIONS][ROTATIONS][];
+    private static final int[][][] I_KICKS = new int[ROTATIONS][ROTATIONS][];
+
+    static {
+        JLSTZ_KICKS[0][1] = new int[]{0, 0, -1, 0, -1, 1, 0, -2, -1, -2};
+        JLSTZ_KICKS[1][0] = new int[]{0, 0, 1, 0, 1, -1, 0, 2, 1, 2};
+        JLSTZ_KICKS[1][2] = new int[]{0, 0, 1, 0, 1, -1, 0, 2, 1, 2};
+        JLSTZ_KICKS[2][1] = new int[]{0, 0, -1, 0, -1, 1, 0, -2, -1, -2};
+        JLSTZ_KICKS[2][3] = new int[]{0, 0, 1, 0, 1, 1, 0, -2, 1, -2};
+        JLSTZ_KICKS[3][2] = new int[]{0, 0, -1, 0, -1, -1, 0, 2, -1, 2};
+        JLSTZ_KICKS[3][0] = new int[]{0, 0, -1, 0, -1, -1, 0, 2, -1, 2};
+        JLSTZ_KICKS[0][3] = new int[]{0, 0, 1, 0, 1, 1, 0, -2, 1, -2};
+
+        I_KICKS[0][1] = new int[]{0, 0, -2, 0, 1, 0, -2, -1, 1, 2};
+        I_KICKS[1][0] = new int[]{0, 0, 2, 0, -1, 0, 2, 1, -1, -2};
+        I_KICKS[1][2] = new int[]{0, 0, -1, 0, 2, 0, -1, 2, 2, -1};
+        I_KICKS[2][1] = new int[]{0, 0, 1, 0, -2, 0, 1, -2, -2, 1};
+        I_KICKS[2][3] = new int[]{0, 0, 2, 0, -1, 0, 2, 1, -1, -2};
+        I_KICKS[3][2] = new int[]{0, 0, -2, 0, 1, 0, -2, -1, 1, 2};
+        I_KICKS[3][0] = new int[]{0, 0, 1, 0, -2, 0, 1, -2, -2, 1};
+        I_KICKS[0][3] = new int[]{0, 0, -1, 0, 2, 0, -1, 2, 2, -1};
+    }
+
+    private static final int[] BOX_SIZE = new int[COUNT];
+    // Per shape and rotation: one row mask per box row (bit c = column c)
+    private static final int[][][] ROWS = new int[COUNT][ROTATIONS][];
+    // Per shape and rotation: the four cells as box-relative offsets
+    private static final int[][][] CELL_X = new int[COUNT][ROTATIONS][CELLS];
+    private static final int[][][] CELL_Y = new int[COUNT][ROTATIONS][CELLS];
+    private static final int[][] MIN_COL = new int[COUNT][ROTATIONS];
+    private static final int[][] MAX_COL = new int[COUNT][ROTATIONS];
+    private static final int[][] MIN_ROW = new int[COUNT][ROTATIONS];
+    private static final int[][] MAX_ROW = new int[COUNT][ROTATIONS];
+    // Per shape and rotation: lowest occupied box row of each box column, -1 if empty
+    private static final int[][][] BOTTOMS = new int[COUNT][ROTATIONS][];
+    // Kicks in board coordinates (y pointing down), indexed [shape][from rotation][to rotation]
+    private static final int[][][][] KICKS = new int[COUNT][ROTATIONS][ROTATIONS][];
+    private static final int[] NO_KICKS = {0, 0};
+
+    static {
+        for (int type = 0; type < COUNT; type++) {
+            int[][] shape = GameEngine.SHAPES[type];
+            int n = Math.max(shape.length, shape[0].length);
+            BOX_SIZE[type] = n;
+
+            // SRS keeps the flat I on box row 1 and the upside-down 3-wide pieces on rows 1-2
+            int rowOffset = (type == I || SPAWN_STATE[type] == 2) ? 1 : 0;
+            int[][] box = new int[n][n];
+            for (int y = 0; y < shape.length; y++) {
+                System.arraycopy(shape[y], 0, box[y + rowOffset], 0, shape[y].length);
+            }
+
+            for (int rot = 0; rot < ROTATIONS; rot++) {
+                fillState(type, rot, box, n);
+                int[][] rotated = new int[n][n];
+                for (int y = 0; y < n; y++) {
+                    for (int x = 0; x < n; x++) {
+                        rotated[x][n - 1 - y] = box[y][x]; // Clockwise
+                    }
+                }
+                box = rotated;
+            }
+
+            for (int from = 0; from < ROTATIONS; from++) {
+                for (int to = 0; to < ROTATIONS; to++) {
+                    if (from == to) continue;
+                    int srsFrom = (SPAWN_STATE[type] + from) & 3;
+                    int srsTo = (SPAWN_STATE[type] + to) & 3;
+                    int[] srs = type == I ? I_KICKS[srsFrom][srsTo] : JLSTZ_KICKS[srsFrom][srsTo];
+                    if (type == O || srs == null) {
+                        KICKS[type][from][to] = NO_KICKS;
+                        continue;
+                    }
+                    int[] kicks = new int[srs.length];
+                    for (int i = 0; i < srs.length; i += 2) {
+                        kicks[i] = srs[i];
+                        kicks[i + 1] = -srs[i + 1]; // Board rows grow downwards
+                    }
+                    KICKS[type][from][to] = kicks;
+                }
+            }
+        }
+    }
+
+    private static void fillState(int type, int rot, int[][] box, int n) {
+        int[] rows = new int[n];
+        int[] bottoms = new int[n];
+        Arrays.fill(bottoms, -1);
+        int minCol = n, maxCol = -1, minRow = n, maxRow = -1, cell = 0;
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                if (box[y][x] == 0) continue;
+                rows[y] |= 1 << x;
+                CELL_X[type][rot][cell] = x;
+                CELL_Y[type][rot][cell] = y;
+                cell++;
+                minCol = Math.min(minCol, x);
+                maxCol = Math.max(maxCol, x);
+                minRow = Math.min(minRow, y);
+                maxRow = Math.max(maxRow, y);
+                bottoms[x] = Math.max(bottoms[x], y);
+            }
+        }
+        ROWS[type][rot] = rows;
+        BOTTOMS[type][rot] = bottoms;
+        MIN_COL[type][rot] = minCol;
+        MAX_COL[type][rot] = maxCol;
+        MIN_ROW[type][rot] = minRow;
+        MAX_ROW[type][rot] = maxRow;
+    }
+
+    private Pieces() {
+    }
+
+    /** Side of the square bounding box the shape rotates in. */
+    public static int boxSize(int type) {
+        return BOX_SIZE[type];
+    }
+
+    /** Row masks of the rotation state, one per box row. Shared, do not modify. */
+    public static int[] rows(int type, int rotation) {
+        return ROWS[type][rotation];
+    }
+
+    /** Box-relative x offsets of the four cells. Shared, do not modify. */
+    public static int[] cellsX(int type, int rotation) {
+        return CELL_X[type][rotation];
+    }
+
+    /** Box-relative y offsets of the four cells. Shared, do not modify. */
+    public static int[] cellsY(int type, int rotation) {
+        return CELL_Y[type][rotation];
+    }
+
+    public static int minCol(int type, int rotation) {
+        return MIN_COL[type][rotation];
+    }
+
+    public static int maxCol(int type, int rotation) {
+        return MAX_COL[type][rotation];
+    }
+
+    public static int minRow(int type, int rotation) {
+        return MIN_ROW[type][rotation];
+    }
+
+    public static int maxRow(int type, int rotation) {
+        return MAX_ROW[type][rotation];
+    }
+
+    /**
+     * Lowest occupied box row of each box column, or -1 for empty columns; with the board's
+     * skyline this gives the landing row. Shared, do not modify.
+     */
+    public static int[] bottoms(int type, int rotation) {
+        return BOTTOMS[type][rotation];
+    }
+
+    /**
+     * Kick offsets to try, in order, when rotating from {@code from} to {@code to}, as
+     * (dx, dy) pairs in board coordinates. The first pair is always (0, 0). Shared, do not modify.
+     */
+    public static int[] kicks(int type, int from, int to) {
+        return KICKS[type][from][to];
+    }
+}
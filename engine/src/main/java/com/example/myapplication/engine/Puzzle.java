@@ -0,0 +1,105 @@
+package com.example.myapplication.engine;
+
+import java.util.Arrays;
+
+/**
+ * A preset board and piece sequence, posing the question "can this be cleared in N pieces?",
+ * which {@link PuzzleSolver} answers. {@link #newGame} turns it into an ordinary game that
+ * starts from the preset and deals the sequence, so the player can try it too.
+ */
+public final class Puzzle {
+    private final int width;
+    private final long[] rows; // Stack rows top to bottom, ending at the floor
+    private final int[] pieces;
+    private final int maxPieces;
+
+    /**
+     * @param rows      occupied cells of the bottom rows, top to bottom, bit x for column x
+     * @param pieces    shape types in the order they are dealt, see {@link GameEngine#SHAPES}
+     * @param maxPieces pieces the board must be cleared within, at most {@code pieces.length}
+     */
+    public Puzzle(int width, long[] rows, int[] pieces, int maxPieces) {
+        if (width < 4 || width > Board.MAX_WIDTH) throw new IllegalArgumentException("width " + width);
+        if (maxPieces < 0 || maxPieces > pieces.length) throw new IllegalArgumentException("maxPieces " + maxPieces);
+        long full = width == Long.SIZE ? -1L : (1L << width) - 1;
+        for (long row : rows) {
+            if ((row & ~full) != 0) throw new IllegalArgumentException("Cells past the right wall: " + Long.toHexString(row));
+        }
+        for (int type : pieces) {
+            if (type < 0 || type >= Pieces.COUNT) throw new IllegalArgumentException("Shape type " + type);
+        }
+        this.width = width;
+        this.rows = rows.clone();
+        this.pieces = pieces.clone();
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Parses a puzzle drawn as text: one string per row, top to bottom, '#' for a filled cell
+     * and '.' for an empty one, and the sequence as shape letters such as "ILTO".
+     */
+    public static Puzzle parse(String sequence, int maxPieces, String... rows) {
+        if (rows.length == 0) throw new IllegalArgumentException("No rows");
+        int width = rows[0].length();
+        long[] masks = new long[rows.length];
+        for (int y = 0; y < rows.length; y++) {
+            String row = rows[y];
+            if (row.length() != width) throw new IllegalArgumentException("Row " + y + " is not " + width + " wide");
+            for (int x = 0; x < width; x++) {
+                char c = row.charAt(x);
+                if (c == '#') masks[y] |= 1L << x;
+                else if (c != '.') throw new IllegalArgumentException("Bad cell '" + c + "' in row " + y);
+            }
+        }
+        int[] pieces = new int[sequence.length()];
+        for (int i = 0; i < pieces.length; i++) {
+            int type = "IOTLJSZ".indexOf(sequence.charAt(i)); // Order of GameEngine.SHAPES
+            if (type < 0) throw new IllegalArgumentException("Bad piece '" + sequence.charAt(i) + "'");
+            pieces[i] = type;
+        }
+        return new Puzzle(width, masks, pieces, maxPieces);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /** Number of preset rows, the bottom of the board. */
+    public int rowCount() {
+        return rows.length;
+    }
+
+    /** Occupied cells of preset row {@code y}, counted from the top of the preset. */
+    public long row(int y) {
+        return rows[y];
+    }
+
+    public int pieceCount() {
+        return pieces.length;
+    }
+
+    /** Shape type of the {@code i}th piece dealt. */
+    public int piece(int i) {
+        return pieces[i];
+    }
+
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * A game on a {@code height}-row board with the preset at the bottom, dealing the
+     * sequence and then random pieces; see {@link GameEngine#reset(Puzzle, int)}.
+     */
+    public GameEngine newGame(int height) {
+        GameEngine engine = new GameEngine(width, height, new PieceRandom());
+        engine.reset(this, height);
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return "Puzzle{" + width + " wide, " + rows.length + " rows, pieces " + Arrays.toString(pieces)
+                + ", max " + maxPieces + "}";
+    }
+}
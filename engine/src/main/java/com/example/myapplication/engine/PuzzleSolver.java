@@ -0,0 +1,410 @@
+package com.example.myapplication.engine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers a {@link Puzzle}: can its board be cleared completely within its piece budget?
+ *
+ * <p>A perfect clear of {@code L} lines fills exactly the empty cells of the bottom
+ * {@code L} rows, so it takes exactly {@code (L * width - filled) / 4} pieces. The solver
+ * deepens iteratively over {@code L}, and so over the piece count, and runs a depth-first
+ * search for each, never letting a piece stick out above the line limit. Placements are the
+ * ones {@link AutoPlayer} considers: every rotation and column, dropped straight down, with
+ * collisions checked by the same {@link Board#collides} rules as the engine.
+ *
+ * <p>Boards are Zobrist-hashed, and boards already shown to be dead ends are kept in a
+ * bounded, lock-free transposition table shared by all threads. Before a board is searched it
+ * must pass two cheap tests: column parity (the remaining pieces can still fill as many
+ * even-column cells as odd-column ones need), and every part of the board that no piece can
+ * reach across must have a multiple of four empty cells. With more than one thread, the
+ * placements of the first piece are searched in parallel.
+ */
+public final class PuzzleSolver implements Closeable {
+    /** Tallest perfect clear searched for. */
+    public static final int MAX_LINES = 16;
+    public static final int DEFAULT_TABLE_BITS = 18; // 2 MB
+
+    private static final int T = 2, L = 3, J = 4; // Shape types, see GameEngine.SHAPES
+    private static final long EVEN_COLUMNS = 0x5555555555555555L;
+
+    // Zobrist keys: one per cell of the line limit, one per piece index and one per line limit
+    private static final long[][] CELL_KEYS = new long[MAX_LINES][Board.MAX_WIDTH];
+    private static final long[] DEPTH_KEYS;
+    private static final long[] LIMIT_KEYS = new long[MAX_LINES + 1];
+    // Rotations with a distinct shape; the others only repeat one shifted by a column or row
+    private static final int[] DISTINCT_ROTATIONS = new int[Pieces.COUNT];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x7E7215L);
+        for (long[] row : CELL_KEYS) {
+            for (int x = 0; x < row.length; x++) row[x] = random.nextLong();
+        }
+        DEPTH_KEYS = new long[MAX_LINES * Board.MAX_WIDTH / Pieces.CELLS + 1];
+        for (int i = 0; i < DEPTH_KEYS.length; i++) DEPTH_KEYS[i] = random.nextLong();
+        for (int i = 0; i < LIMIT_KEYS.length; i++) LIMIT_KEYS[i] = random.nextLong();
+
+        for (int type = 0; type < Pieces.COUNT; type++) {
+            int distinct = 0;
+            for (int rot = 0; rot < Pieces.ROTATIONS; rot++) {
+                boolean repeat = false;
+                for (int earlier = 0; earlier < rot && !repeat; earlier++) {
+                    repeat = sameShape(type, earlier, rot);
+                }
+                if (repeat) break; // Rotations repeat in order, e.g. I, S and Z after two
+                distinct++;
+            }
+            DISTINCT_ROTATIONS[type] = distinct;
+        }
+    }
+
+    private static boolean sameShape(int type, int a, int b) {
+        int[] ax = Pieces.cellsX(type, a), ay = Pieces.cellsY(type, a);
+        int[] bx = Pieces.cellsX(type, b), by = Pieces.cellsY(type, b);
+        int dx = Pieces.minCol(type, b) - Pieces.minCol(type, a);
+        int dy = Pieces.minRow(type, b) - Pieces.minRow(type, a);
+        outer:
+        for (int i = 0; i < Pieces.CELLS; i++) {
+            for (int j = 0; j < Pieces.CELLS; j++) {
+                if (ax[i] + dx == bx[j] && ay[i] + dy == by[j]) continue outer;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /** Where each piece goes: the engine's rotation and box column, then a hard drop. */
+    public static final class Solution {
+        private final int[] rotations, xs;
+        private final int lines;
+
+        Solution(int[] rotations, int[] xs, int lines) {
+            this.rotations = rotations;
+            this.xs = xs;
+            this.lines = lines;
+        }
+
+        /** Pieces the clear takes, the first ones of the sequence. */
+        public int pieces() {
+            return rotations.length;
+        }
+
+        public int rotation(int i) {
+            return rotations[i];
+        }
+
+        public int x(int i) {
+            return xs[i];
+        }
+
+        /** Lines the clear removes. */
+        public int lines() {
+            return lines;
+        }
+    }
+
+    private final ExecutorService pool; // Null when searching on the calling thread only
+    private final TranspositionTable table;
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Searches on every core with the default table size. */
+    public PuzzleSolver() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param threads   threads to search the first piece's placements on; 1 searches on the caller
+     * @param tableBits log2 of the transposition table's entries, 8 bytes each
+     */
+    public PuzzleSolver(int threads, int tableBits) {
+        if (threads < 1) throw new IllegalArgumentException("threads " + threads);
+        if (tableBits < 4 || tableBits > 30) throw new IllegalArgumentException("tableBits " + tableBits);
+        table = new TranspositionTable(tableBits);
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "PuzzleSolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Finds the shortest perfect clear of {@code puzzle} within its piece budget, or returns
+     * null if there is none. May be called from one thread at a time.
+     */
+    public Solution solve(Puzzle puzzle) throws InterruptedException {
+        int width = puzzle.width();
+        int filled = 0, stack = 0;
+        for (int y = 0; y < puzzle.rowCount(); y++) {
+            long row = puzzle.row(y);
+            filled += Long.bitCount(row);
+            if (row != 0 && stack == 0) stack = puzzle.rowCount() - y;
+        }
+        if (filled == 0) return new Solution(new int[0], new int[0], 0);
+
+        // Entries of earlier solves stay in the table, but under keys this solve never makes
+        long salt = mix(generation.incrementAndGet());
+        for (int lines = stack; lines <= MAX_LINES; lines++) {
+            int empty = lines * width - filled;
+            if (empty % Pieces.CELLS != 0) continue;
+            int pieces = empty / Pieces.CELLS;
+            if (pieces > puzzle.maxPieces()) break;
+            Solution solution = search(puzzle, lines, pieces, salt);
+            if (solution != null) return solution;
+        }
+        return null;
+    }
+
+    /** Stops the search threads. */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    // One iterative-deepening step: a clear of exactly this many lines
+    private Solution search(Puzzle puzzle, int lines, int pieces, long salt) throws InterruptedException {
+        Job job = new Job(puzzle, lines, pieces, salt ^ LIMIT_KEYS[lines]);
+        Search root = new Search(job);
+        if (!root.viable(0)) return null;
+        if (pool == null || pieces < 2) return root.dfs(0) ? root.solution() : null;
+
+        // Each placement of the first piece is a task; the first to finish a clear stops the rest
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int type = puzzle.piece(0);
+        for (int rot = 0; rot < DISTINCT_ROTATIONS[type]; rot++) {
+            for (int x = -Pieces.minCol(type, rot); x + Pieces.maxCol(type, rot) < puzzle.width(); x++) {
+                if (!root.place(0, rot, x)) continue;
+                int r = rot, px = x;
+                tasks.add(() -> {
+                    Search search = new Search(job);
+                    if (search.place(0, r, px) && search.dfs(1)) job.finish(search.solution());
+                    return null;
+                });
+            }
+        }
+        if (tasks.size() <= 1) {
+            return root.dfs(0) ? root.solution() : null;
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return job.solution;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** One deepening step's fixed inputs, and its answer once a thread finds one. */
+    private static final class Job {
+        final int width, lines, pieces;
+        final long fullRowMask;
+        final long[] start;
+        final int[] types;
+        final long salt;
+        // Of the pieces from each index on: L and J, T, and I; for the parity test
+        final int[] bent, tees, bars;
+        volatile Solution solution;
+
+        Job(Puzzle puzzle, int lines, int pieces, long salt) {
+            width = puzzle.width();
+            this.lines = lines;
+            this.pieces = pieces;
+            this.salt = salt;
+            fullRowMask = width == Long.SIZE ? -1L : (1L << width) - 1;
+            start = new long[lines];
+            int skip = Math.max(0, puzzle.rowCount() - lines); // Empty rows above the stack
+            for (int y = skip; y < puzzle.rowCount(); y++) {
+                start[lines - puzzle.rowCount() + y] = puzzle.row(y);
+            }
+            types = new int[pieces];
+            bent = new int[pieces + 1];
+            tees = new int[pieces + 1];
+            bars = new int[pieces + 1];
+            for (int i = pieces - 1; i >= 0; i--) {
+                int type = puzzle.piece(i);
+                types[i] = type;
+                bent[i] = bent[i + 1] + (type == L || type == J ? 1 : 0);
+                tees[i] = tees[i + 1] + (type == T ? 1 : 0);
+                bars[i] = bars[i + 1] + (type == 0 ? 1 : 0);
+            }
+        }
+
+        void finish(Solution found) {
+            if (solution == null) solution = found; // Any clear will do; they are all this short
+        }
+
+        boolean done() {
+            return solution != null;
+        }
+    }
+
+    /** One thread's search, on boards preallocated per depth so the search never allocates. */
+    private final class Search {
+        final Job job;
+        final long[][] boards; // Line limit rows, top to bottom; boards[d] is the board before piece d
+        final int[] tops; // Lines already cleared at each depth, the rows above the stack that must stay empty
+        final long[] hashes;
+        final int[] rotations, xs;
+        final int[] columnEmpty;
+
+        Search(Job job) {
+            this.job = job;
+            boards = new long[job.pieces + 1][job.lines];
+            tops = new int[job.pieces + 1];
+            hashes = new long[job.pieces + 1];
+            rotations = new int[job.pieces];
+            xs = new int[job.pieces];
+            columnEmpty = new int[job.width];
+            System.arraycopy(job.start, 0, boards[0], 0, job.lines);
+            tops[0] = Board.clearFullRows(boards[0], job.lines, job.fullRowMask);
+            hashes[0] = hash(boards[0], tops[0]);
+        }
+
+        /** True once pieces {@code d} on clear the board; the placements are then in {@link #solution}. */
+        boolean dfs(int d) {
+            if (d == job.pieces) return true; // Every cell under the limit was filled and cleared
+            if (job.done()) return false;
+            long key = hashes[d] ^ DEPTH_KEYS[d] ^ job.salt;
+            if (table.isDead(key)) return false;
+            int type = job.types[d];
+            for (int rot = 0; rot < DISTINCT_ROTATIONS[type]; rot++) {
+                for (int x = -Pieces.minCol(type, rot); x + Pieces.maxCol(type, rot) < job.width; x++) {
+                    if (place(d, rot, x) && dfs(d + 1)) return true;
+                }
+            }
+            if (!job.done()) table.markDead(key, job.pieces - d); // Unless cut short, every placement failed
+            return false;
+        }
+
+        /**
+         * Drops piece {@code d} in column {@code x} onto {@code boards[d]}, writing the result
+         * to {@code boards[d + 1]}. Returns false if it would stick out above the line limit or
+         * leaves a board that cannot be cleared.
+         */
+        boolean place(int d, int rot, int x) {
+            int type = job.types[d];
+            int[] piece = Pieces.rows(type, rot);
+            int minCol = Pieces.minCol(type, rot), maxCol = Pieces.maxCol(type, rot);
+            long[] board = boards[d];
+            int top = tops[d];
+            int y = top - Pieces.minRow(type, rot); // Highest row the piece may occupy
+            if (Board.collides(board, job.width, job.lines, piece, minCol, maxCol, x, y)) return false;
+            while (!Board.collides(board, job.width, job.lines, piece, minCol, maxCol, x, y + 1)) y++;
+
+            long[] child = boards[d + 1];
+            System.arraycopy(board, 0, child, 0, job.lines);
+            long hash = hashes[d];
+            for (int r = Pieces.minRow(type, rot); r <= Pieces.maxRow(type, rot); r++) {
+                long mask = Board.shift(piece[r], x);
+                child[y + r] |= mask;
+                for (long m = mask; m != 0; m &= m - 1) {
+                    hash ^= CELL_KEYS[y + r][Long.numberOfTrailingZeros(m)];
+                }
+            }
+            int cleared = Board.clearFullRows(child, job.lines, job.fullRowMask);
+            tops[d + 1] = top + cleared;
+            hashes[d + 1] = cleared == 0 ? hash : hash(child, top + cleared); // Every cell moved down
+            rotations[d] = rot;
+            xs[d] = x;
+            return viable(d + 1);
+        }
+
+        /** Cheap tests that the remaining pieces could still clear {@code boards[d]}. */
+        boolean viable(int d) {
+            long[] board = boards[d];
+            int even = 0, odd = 0;
+            long crossable = 0; // Bit c: some row has columns c and c + 1 both empty
+            for (int x = 0; x < job.width; x++) columnEmpty[x] = 0;
+            for (int y = tops[d]; y < job.lines; y++) {
+                long empty = ~board[y] & job.fullRowMask;
+                even += Long.bitCount(empty & EVEN_COLUMNS);
+                odd += Long.bitCount(empty & ~EVEN_COLUMNS);
+                crossable |= empty & (empty >>> 1);
+                for (; empty != 0; empty &= empty - 1) columnEmpty[Long.numberOfTrailingZeros(empty)]++;
+            }
+
+            // Column parity: clears only remove full rows, so the empty cells change only by
+            // what pieces cover. O, S and Z cover as many even columns as odd; L and J always
+            // two more of one; T either; a flat I neither and an upright one four more
+            int need = Math.abs(even - odd) / 2; // The difference is even, as 4 divides their sum
+            int bent = job.bent[d], tees = job.tees[d];
+            if (need > bent + tees + 2 * job.bars[d]) return false;
+            if (tees == 0 && ((need ^ bent) & 1) != 0) return false;
+
+            // No piece can ever cross between columns c and c + 1 if no row has both empty, as
+            // the rows cleared later are full; each side must then be filled by whole pieces
+            int left = 0;
+            for (int x = 0; x + 1 < job.width; x++) {
+                left += columnEmpty[x];
+                if ((crossable >>> x & 1) == 0 && left % Pieces.CELLS != 0) return false;
+            }
+            return true;
+        }
+
+        long hash(long[] board, int top) {
+            long hash = 0;
+            for (int y = top; y < job.lines; y++) {
+                for (long m = board[y]; m != 0; m &= m - 1) {
+                    hash ^= CELL_KEYS[y][Long.numberOfTrailingZeros(m)];
+                }
+            }
+            return hash;
+        }
+
+        Solution solution() {
+            return new Solution(rotations.clone(), xs.clone(), job.lines);
+        }
+    }
+
+    /**
+     * Boards known not to be clearable, keyed by hash, in two-entry buckets. Each entry packs
+     * the key's high bits with the number of pieces that were left, which measures how much
+     * search it saves. The first slot keeps whichever entry saves more, the second always
+     * takes what the first turns away, so deep results survive floods of shallow ones.
+     * Entries are single longs, so threads share the table without locks or torn reads.
+     */
+    private static final class TranspositionTable {
+        private static final long DEPTH_MASK = 0x3F;
+
+        private final AtomicLongArray entries;
+        private final int mask;
+
+        TranspositionTable(int bits) {
+            entries = new AtomicLongArray(1 << bits);
+            mask = (1 << bits) - 2; // Even indices, the first slot of each bucket
+        }
+
+        boolean isDead(long key) {
+            int i = (int) key & mask;
+            long tag = key & ~DEPTH_MASK;
+            return (entries.get(i) & ~DEPTH_MASK) == tag || (entries.get(i + 1) & ~DEPTH_MASK) == tag;
+        }
+
+        void markDead(long key, int piecesLeft) {
+            int i = (int) key & mask;
+            long entry = (key & ~DEPTH_MASK) | Math.min(piecesLeft, DEPTH_MASK); // Never 0, as pieces were left
+            long first = entries.get(i);
+            if (first == 0 || (first & DEPTH_MASK) <= piecesLeft) {
+                entries.set(i, entry);
+                if (first != 0 && (first & ~DEPTH_MASK) != (key & ~DEPTH_MASK)) entries.set(i + 1, first);
+            } else {
+                entries.set(i + 1, entry);
+            }
+        }
+    }
+}
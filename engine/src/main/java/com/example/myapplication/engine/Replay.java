@@ -0,0 +1,162 @@
+package com.example.myapplication.engine;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A recorded game loaded into memory: the seed, every input with its time since the game
+ * started, and the final state stored by {@link ReplayRecorder#finish}, if the recording
+ * was finished.
+ */
+public final class Replay {
+    private final long seed;
+    private final int boardWidth, boardHeight;
+    private final int[] inputs;
+    private final long[] times;
+    private final boolean complete;
+    private final int finalScore, finalLines, finalPieces;
+    private final long finalBoardHash;
+
+    private Replay(long seed, int boardWidth, int boardHeight, int[] inputs, long[] times, boolean complete,
+                   int finalScore, int finalLines, int finalPieces, long finalBoardHash) {
+        this.seed = seed;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.inputs = inputs;
+        this.times = times;
+        this.complete = complete;
+        this.finalScore = finalScore;
+        this.finalLines = finalLines;
+        this.finalPieces = finalPieces;
+        this.finalBoardHash = finalBoardHash;
+    }
+
+    /** Reads a whole replay from the channel, which is not closed. */
+    public static Replay read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(8192);
+        while (channel.read(data) >= 0) {
+            if (!data.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(data.capacity() * 2);
+                ((Buffer) data).flip();
+                data = bigger.put(data);
+            }
+        }
+        ((Buffer) data).flip(); // Buffer's signature: older Android lacks ByteBuffer's covariant one
+        if (data.remaining() < 13 || data.getInt() != ReplayRecorder.MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        byte version = data.get();
+        if (version < 1 || version > ReplayRecorder.VERSION) {
+            throw new IOException("Unsupported replay version");
+        }
+        long seed = data.getLong();
+        int width = GameEngine.BOARD_WIDTH, height = GameEngine.BOARD_HEIGHT; // Version 1 had no sizes
+        if (version >= 2) {
+            if (data.remaining() < 3) throw new IOException("Truncated replay");
+            width = data.get() & 0xFF;
+            height = data.getShort() & 0xFFFF;
+            if (width < 4 || width > Board.MAX_WIDTH || height < 4 || height > GameEngine.MAX_BOARD_HEIGHT) {
+                throw new IOException("Bad board size " + width + " x " + height);
+            }
+        }
+
+        int[] inputs = new int[256];
+        long[] times = new long[256];
+        int count = 0;
+        long time = 0;
+        while (data.hasRemaining()) {
+            long event;
+            try {
+                event = getVarint(data);
+            } catch (IOException e) {
+                if (data.hasRemaining()) throw e;
+                break; // The last input was cut off mid-write
+            }
+            int input = (int) (event & 7);
+            if (input == ReplayRecorder.END) {
+                int score, lines, pieces;
+                try {
+                    score = (int) getVarint(data);
+                    lines = (int) getVarint(data);
+                    pieces = (int) getVarint(data);
+                } catch (IOException e) {
+                    if (data.hasRemaining()) throw e;
+                    break; // Killed while finishing: every input is there, the final state is not
+                }
+                if (data.remaining() < 8) break; // Likewise
+                long hash = data.getLong();
+                return new Replay(seed, width, height, Arrays.copyOf(inputs, count), Arrays.copyOf(times, count),
+                        true, score, lines, pieces, hash);
+            }
+            time += event >>> 3;
+            if (count == inputs.length) {
+                inputs = Arrays.copyOf(inputs, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+            }
+            inputs[count] = input;
+            times[count] = time;
+            count++;
+        }
+        // Cut short, e.g. the app died mid-game: still playable, just not verifiable
+        return new Replay(seed, width, height, Arrays.copyOf(inputs, count), Arrays.copyOf(times, count),
+                false, 0, 0, 0, 0);
+    }
+
+    private static long getVarint(ByteBuffer data) throws IOException {
+        return Varints.get(data);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    public int size() {
+        return inputs.length;
+    }
+
+    public int getInput(int index) {
+        return inputs[index];
+    }
+
+    /** Milliseconds from the start of the game to input {@code index}. */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /** True if the recording ended with a final state to verify against. */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /** Resets {@code engine} to the replay's seed and board and applies every input as fast as possible. */
+    public void playInto(GameEngine engine) {
+        engine.reset(seed, boardWidth, boardHeight);
+        for (int input : inputs) {
+            engine.apply(input);
+        }
+    }
+
+    /**
+     * Re-simulates the game headlessly and returns true if it ends with the recorded score,
+     * lines, piece count and board. Incomplete recordings never verify.
+     */
+    public boolean verify(GameEngine engine) {
+        playInto(engine);
+        return complete
+                && engine.getScore() == finalScore
+                && engine.getLinesCleared() == finalLines
+                && engine.getPiecesPlaced() == finalPieces
+                && engine.getBoard().contentHash() == finalBoardHash;
+    }
+}
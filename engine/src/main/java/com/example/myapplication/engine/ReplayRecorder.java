@@ -0,0 +1,88 @@
+package com.example.myapplication.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a game as its seed plus a stream of timestamped {@link Input}s, in the compact
+ * format read by {@link Replay}.
+ *
+ * <p>After a fixed header (magic, version, seed, board width and height), each input is one unsigned varint of
+ * {@code (millisSincePreviousInput << 3) | input}, so a typical event takes one or two
+ * bytes. {@link #finish} appends an end marker followed by the final score, lines,
+ * pieces and board hash so playback can verify it reproduced the same game. Bytes are
+ * staged in a fixed buffer and written to the channel only when it fills up.
+ */
+public final class ReplayRecorder implements Closeable {
+    static final int MAGIC = 0x5452504C; // "TRPL"
+    static final byte VERSION = 2; // 2: board size in the header
+    static final int END = 7; // Input slot reserved for the end marker
+    private static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long lastTime;
+    private boolean finished;
+
+    /** Records a game on the default {@link GameEngine#BOARD_WIDTH} x {@link GameEngine#BOARD_HEIGHT} board. */
+    public ReplayRecorder(WritableByteChannel channel, long seed) throws IOException {
+        this(channel, seed, GameEngine.BOARD_WIDTH, GameEngine.BOARD_HEIGHT);
+    }
+
+    public ReplayRecorder(WritableByteChannel channel, long seed, int boardWidth, int boardHeight) throws IOException {
+        this.channel = channel;
+        buffer.putInt(MAGIC).put(VERSION).putLong(seed).put((byte) boardWidth).putShort((short) boardHeight);
+    }
+
+    /** Records an input applied {@code timeMillis} after the game started. */
+    public void record(long timeMillis, int input) throws IOException {
+        if (input < 0 || input >= Input.COUNT) {
+            throw new IllegalArgumentException("Unknown input: " + input);
+        }
+        long delta = Math.max(0, timeMillis - lastTime);
+        lastTime = Math.max(lastTime, timeMillis);
+        putVarint((delta << 3) | input);
+    }
+
+    /** Appends the final state of {@code engine} and flushes everything to the channel. */
+    public void finish(GameEngine engine) throws IOException {
+        putVarint(END);
+        putVarint(engine.getScore());
+        putVarint(engine.getLinesCleared());
+        putVarint(engine.getPiecesPlaced());
+        ensureRoom(Long.BYTES);
+        buffer.putLong(engine.getBoard().contentHash());
+        flush();
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void putVarint(long value) throws IOException {
+        ensureRoom(Varints.MAX_BYTES);
+        Varints.put(buffer, value);
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush();
+    }
+
+    private void flush() throws IOException {
+        ((Buffer) buffer).flip(); // Buffer's signature: older Android lacks ByteBuffer's covariant one
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.myapplication.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Every finished game, kept on disk as an append-only log of {@link GameRecord}s, with a
+ * leaderboard of the best {@code capacity} games and running totals kept in memory.
+ *
+ * <p>Startup never scans the whole history. Every {@link #COMPACT_EVERY} games the totals
+ * and leaderboard are compacted into a small index file that notes how many log records it
+ * covers, so opening reads the index plus at most that many records from the log's tail.
+ * If the index is missing or damaged it is rebuilt from the full log once.
+ *
+ * <p>All file work happens in order on the store's own thread: {@link #add} and the
+ * constructor return at once, and {@link #summary()} is a volatile read of an immutable
+ * {@link Summary}, so the UI thread never waits on the disk. {@link Listener}s hear when it
+ * changes, so a view showing it can redraw.
+ */
+public final class StatsStore implements Closeable {
+    /** Called on the store's own thread after {@link #summary()} changed. */
+    public interface Listener {
+        void onSummaryChanged(Summary summary);
+    }
+
+    /** Games appended between two compactions of the index. */
+    public static final int COMPACT_EVERY = 1024;
+
+    static final String LOG_FILE = "games.log";
+    static final String INDEX_FILE = "games.idx";
+    private static final int LOG_MAGIC = 0x54535447; // "TSTG"
+    private static final int INDEX_MAGIC = 0x54535449; // "TSTI"
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 8;
+    // Magic, version, covered records, then the summary's totals and its leaderboard size
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 8 + 5 * 8 + 4;
+    private static final int READ_BATCH = 256; // Records read from the log at a time
+
+    private final File dir;
+    private final int capacity;
+    private final ExecutorService writer;
+    private volatile Summary summary;
+    private volatile IOException error;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Only touched on the writer thread
+    private FileChannel log;
+    private long logRecords; // Whole records in the log
+    private long covered; // Log records already folded into the index file
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(GameRecord.SIZE);
+
+    /** Opens, or creates, the store in {@code dir}, keeping the best {@code capacity} games ranked. */
+    public StatsStore(File dir, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity " + capacity);
+        this.dir = dir;
+        this.capacity = capacity;
+        summary = new Summary(capacity);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "StatsStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::load);
+    }
+
+    /** The leaderboard and totals, including every game added so far once the store has loaded. */
+    public Summary summary() {
+        return summary;
+    }
+
+    /**
+     * Tells {@code listener} about every later change of the summary. Changes made before this
+     * call are not reported, so read {@link #summary()} after adding.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Why the store stopped writing, or null if every write so far succeeded. */
+    public IOException error() {
+        return error;
+    }
+
+    /** Queues {@code game} to be ranked, counted and appended to the log. */
+    public void add(GameRecord game) {
+        writer.execute(() -> {
+            publish(summary.plus(game));
+            if (log == null) return; // The log could not be opened; keep counting in memory
+            try {
+                ((Buffer) recordBuffer).clear();
+                game.write(recordBuffer);
+                ((Buffer) recordBuffer).flip();
+                writeFully(log, recordBuffer, LOG_HEADER_SIZE + logRecords * GameRecord.SIZE);
+                logRecords++;
+                if (logRecords - covered >= COMPACT_EVERY) compact();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    /** Blocks until every queued write has reached the file system. For tests and shutdown. */
+    public void flush() throws IOException {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Finishes queued writes and closes the log. Games added afterwards are dropped. */
+    @Override
+    public void close() throws IOException {
+        writer.execute(() -> {
+            if (log == null) return;
+            try {
+                log.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+            log = null;
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(IOException e) {
+        error = e;
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException ignored) {
+        }
+        log = null;
+    }
+
+    // Reads the index, then folds in the log records written since it was last compacted
+    private void load() {
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            log = new RandomAccessFile(new File(dir, LOG_FILE), "rw").getChannel();
+            long size = log.size();
+            if (size < LOG_HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC).putInt(VERSION);
+                ((Buffer) header).flip();
+                log.truncate(0);
+                writeFully(log, header, 0);
+                size = LOG_HEADER_SIZE;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+                readFully(log, header, 0);
+                if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) throw new IOException("Not a game log");
+            }
+            logRecords = (size - LOG_HEADER_SIZE) / GameRecord.SIZE;
+            // A record torn by a kill mid-write is dropped
+            if (size != LOG_HEADER_SIZE + logRecords * GameRecord.SIZE) {
+                log.truncate(LOG_HEADER_SIZE + logRecords * GameRecord.SIZE);
+            }
+
+            Summary loaded = readIndex();
+            if (loaded == null || covered > logRecords) {
+                loaded = new Summary(capacity); // Rebuild from the whole log
+                covered = 0;
+            }
+            fold(loaded, covered, logRecords);
+            publish(loaded); // Games added meanwhile are queued behind this, so none is lost
+            if (logRecords - covered >= COMPACT_EVERY) compact();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void publish(Summary next) {
+        summary = next;
+        for (Listener listener : listeners) listener.onSummaryChanged(next);
+    }
+
+    private void fold(Summary into, long from, long to) throws IOException {
+        ByteBuffer batch = ByteBuffer.allocate(READ_BATCH * GameRecord.SIZE);
+        for (long i = from; i < to; ) {
+            int n = (int) Math.min(READ_BATCH, to - i);
+            ((Buffer) batch).clear();
+            ((Buffer) batch).limit(n * GameRecord.SIZE);
+            readFully(log, batch, LOG_HEADER_SIZE + i * GameRecord.SIZE);
+            for (int r = 0; r < n; r++) {
+                into.add(GameRecord.read(batch)); // Not published yet, so updated in place
+            }
+            i += n;
+        }
+    }
+
+    // Returns the summary stored in the index and sets covered, or null if there is no usable index
+    private Summary readIndex() {
+        File file = new File(dir, INDEX_FILE);
+        long length = file.length();
+        if (length < INDEX_HEADER_SIZE + 8 || length > INDEX_HEADER_SIZE + 8 + (long) capacity * GameRecord.SIZE) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) length);
+        try (FileChannel in = new RandomAccessFile(file, "r").getChannel()) {
+            readFully(in, data, 0);
+        } catch (IOException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.limit() - 8);
+        if (data.getLong(data.limit() - 8) != crc.getValue()) return null;
+        if (data.getInt() != INDEX_MAGIC || data.getInt() != VERSION) return null;
+        long coveredRecords = data.getLong();
+        Summary loaded = new Summary(capacity);
+        loaded.games = data.getLong();
+        loaded.totalScore = data.getLong();
+        loaded.totalLines = data.getLong();
+        loaded.totalPieces = data.getLong();
+        loaded.totalDurationMillis = data.getLong();
+        int count = data.getInt();
+        if (count < 0 || count > capacity || data.remaining() != count * GameRecord.SIZE + 8) return null;
+        for (int i = 0; i < count; i++) {
+            loaded.top[i] = GameRecord.read(data);
+        }
+        loaded.topCount = count;
+        covered = coveredRecords;
+        return loaded;
+    }
+
+    // Writes the current summary as the index, through a temporary file renamed over the old one
+    private void compact() throws IOException {
+        log.force(false); // The index must never cover records that are not on disk
+        Summary s = summary;
+        ByteBuffer data = ByteBuffer.allocate(INDEX_HEADER_SIZE + s.topCount * GameRecord.SIZE + 8);
+        data.putInt(INDEX_MAGIC).putInt(VERSION).putLong(logRecords);
+        data.putLong(s.games).putLong(s.totalScore).putLong(s.totalLines).putLong(s.totalPieces)
+                .putLong(s.totalDurationMillis);
+        data.putInt(s.topCount);
+        for (int i = 0; i < s.topCount; i++) {
+            s.top[i].write(data);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.position());
+        data.putLong(crc.getValue());
+        File temp = new File(dir, INDEX_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data.array(), 0, data.position());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(new File(dir, INDEX_FILE))) throw new IOException("Cannot replace " + INDEX_FILE);
+        covered = logRecords;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            int n = channel.read(data, position);
+            if (n < 0) throw new IOException("Unexpected end of file");
+            position += n;
+        }
+        ((Buffer) data).flip();
+    }
+
+    /**
+     * Running totals over every game and the best games in leaderboard order. Immutable
+     * once published; each game added replaces it with a copy.
+     */
+    public static final class Summary {
+        private long games, totalScore, totalLines, totalPieces, totalDurationMillis;
+        private final GameRecord[] top;
+        private int topCount;
+
+        Summary(int capacity) {
+            top = new GameRecord[capacity];
+        }
+
+        Summary plus(GameRecord game) {
+            Summary next = new Summary(top.length);
+            next.games = games;
+            next.totalScore = totalScore;
+            next.totalLines = totalLines;
+            next.totalPieces = totalPieces;
+            next.totalDurationMillis = totalDurationMillis;
+            System.arraycopy(top, 0, next.top, 0, topCount);
+            next.topCount = topCount;
+            next.add(game);
+            return next;
+        }
+
+        private void add(GameRecord game) {
+            games++;
+            totalScore += game.getScore();
+            totalLines += game.getLines();
+            totalPieces += game.getPieces();
+            totalDurationMillis += game.getDurationMillis();
+            int rank = rankOf(game);
+            if (rank < 0) return;
+            // Shift the games below down one place; the last falls off a full board
+            int kept = Math.min(topCount, top.length - 1) - rank;
+            System.arraycopy(top, rank, top, rank + 1, kept);
+            top[rank] = game;
+            topCount = rank + 1 + kept;
+        }
+
+        /** The place, from 0, that {@code game} would take on the leaderboard, or -1 if it would not make it. */
+        public int rankOf(GameRecord game) {
+            int low = 0, high = topCount; // Binary search for the first game it ranks above
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (game.ranksAbove(top[mid])) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low < top.length ? low : -1;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getTotalScore() {
+            return totalScore;
+        }
+
+        public long getTotalLines() {
+            return totalLines;
+        }
+
+        public long getTotalPieces() {
+            return totalPieces;
+        }
+
+        public long getTotalDurationMillis() {
+            return totalDurationMillis;
+        }
+
+        public long getAverageScore() {
+            return games == 0 ? 0 : totalScore / games;
+        }
+
+        public int getBestScore() {
+            return topCount == 0 ? 0 : top[0].getScore();
+        }
+
+        /** Games on the leaderboard, at most the store's capacity. */
+        public int getTopCount() {
+            return topCount;
+        }
+
+        /** The game at leaderboard place {@code rank}, from 0. */
+        public GameRecord getTop(int rank) {
+            if (rank >= topCount) throw new IndexOutOfBoundsException("rank " + rank);
+            return top[rank];
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.myapplication.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Applies the peer's sync payloads to a local copy of its game, see {@link SyncProtocol}.
+ * The board starts empty, as the peer's mirror does. Not thread-safe; the view reads the
+ * state on the same thread that calls {@link #apply}, or draws a {@link #copyFrom copy}.
+ */
+public final class SyncDecoder {
+    private final Board board;
+    private int pieceType = -1, rotation, pieceX, pieceY;
+    private int score, linesCleared;
+    private boolean paired, toppedOut;
+    private int attack;
+    private long ping = -1, pong = -1;
+
+    public SyncDecoder(int width, int height) {
+        board = new Board(width, height);
+    }
+
+    /**
+     * Overwrites this decoder with the state {@code other} draws from, e.g. to hand to a
+     * thread that only draws it. Both must be for boards of the same size.
+     */
+    public void copyFrom(SyncDecoder other) {
+        board.copyFrom(other.board);
+        pieceType = other.pieceType;
+        rotation = other.rotation;
+        pieceX = other.pieceX;
+        pieceY = other.pieceY;
+        score = other.score;
+        linesCleared = other.linesCleared;
+        paired = other.paired;
+        toppedOut = other.toppedOut;
+    }
+
+    /** Applies one payload, from its position to its limit. */
+    public void apply(ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            byte op = in.get();
+            switch (op) {
+                case SyncProtocol.OP_CLEAR_ROW:
+                    board.removeRow(checkRow(Varints.get(in)));
+                    break;
+                case SyncProtocol.OP_PUSH: {
+                    int lines = (int) Math.min(Varints.get(in), board.height());
+                    long hole = Varints.get(in);
+                    if (lines < 1 || hole < 0 || hole >= board.width()) throw new IOException("Bad push"); // 10-byte varints go negative
+                    board.pushUp(lines, (int) hole);
+                    break;
+                }
+                case SyncProtocol.OP_ROWS:
+                    applyRows(in);
+                    break;
+                case SyncProtocol.OP_PIECE: {
+                    if (!in.hasRemaining()) throw new IOException("Truncated piece");
+                    int packed = in.get();
+                    int type = packed & 7;
+                    if (type >= Pieces.COUNT) throw new IOException("Bad piece type " + type);
+                    rotation = (packed >>> 3) & 3;
+                    pieceX = (int) Varints.unZigZag(Varints.get(in));
+                    pieceY = (int) Varints.get(in) - 2;
+                    pieceType = type;
+                    break;
+                }
+                case SyncProtocol.OP_NO_PIECE:
+                    pieceType = -1;
+                    break;
+                case SyncProtocol.OP_SCORE:
+                    score = (int) Varints.get(in);
+                    linesCleared = (int) Varints.get(in);
+                    break;
+                case SyncProtocol.OP_ATTACK: {
+                    long lines = Varints.get(in);
+                    if (lines < 0) throw new IOException("Bad attack");
+                    attack += (int) Math.min(lines, board.height());
+                    break;
+                }
+                case SyncProtocol.OP_TOP_OUT:
+                    toppedOut = true;
+                    pieceType = -1;
+                    break;
+                case SyncProtocol.OP_PAIRED:
+                    paired = true;
+                    break;
+                case SyncProtocol.OP_PING:
+                    ping = Varints.get(in);
+                    break;
+                case SyncProtocol.OP_PONG:
+                    pong = Varints.get(in);
+                    break;
+                default:
+                    throw new IOException("Unknown op " + op);
+            }
+        }
+    }
+
+    private void applyRows(ByteBuffer in) throws IOException {
+        long count = Varints.get(in);
+        int y = -1;
+        for (long i = 0; i < count; i++) {
+            long header = Varints.get(in);
+            y = checkRow(y + 1 + (header >>> 1));
+            long value = Varints.get(in);
+            if ((header & 1) == SyncProtocol.ROW_ADDED) {
+                long added = (value >>> 4) & board.fullRowMask();
+                value = SyncEncoder.fill(added, (int) value & 0xF);
+                board.setPackedRow(y, checkCells(board.packedRow(y) | value));
+            } else {
+                board.setPackedRow(y, checkCells(value));
+            }
+        }
+    }
+
+    // The view indexes its colours by cell value, so reject anything it has no colour for
+    private static long checkCells(long packed) throws IOException {
+        for (long p = packed; p != 0; p >>>= 4) {
+            if ((p & 0xF) > Board.GARBAGE) throw new IOException("Bad cell value in row " + Long.toHexString(packed));
+        }
+        return packed;
+    }
+
+    private int checkRow(long y) throws IOException {
+        if (y < 0 || y >= board.height()) throw new IOException("Row out of range: " + y);
+        return (int) y;
+    }
+
+    /** The peer's board as of the last payload applied. */
+    public Board board() {
+        return board;
+    }
+
+    /** Shape type of the peer's falling piece, or -1 if it has none. */
+    public int pieceType() {
+        return pieceType;
+    }
+
+    public int rotation() {
+        return rotation;
+    }
+
+    public int pieceX() {
+        return pieceX;
+    }
+
+    public int pieceY() {
+        return pieceY;
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int linesCleared() {
+        return linesCleared;
+    }
+
+    /** True once the relay has matched us with a peer. */
+    public boolean isPaired() {
+        return paired;
+    }
+
+    public boolean isToppedOut() {
+        return toppedOut;
+    }
+
+    /** Garbage lines the peer sent since the last call. */
+    public int takeAttack() {
+        int lines = attack;
+        attack = 0;
+        return lines;
+    }
+
+    /** The peer's latest ping time to echo back, or -1. */
+    public long takePing() {
+        long micros = ping;
+        ping = -1;
+        return micros;
+    }
+
+    /** Our own ping time the peer echoed back, or -1. */
+    public long takePong() {
+        long micros = pong;
+        pong = -1;
+        return micros;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.myapplication.engine;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Batches one player's board and piece changes into a sync payload per tick, see
+ * {@link SyncProtocol}. Keeps a mirror of the board as the peer last saw it and applies
+ * every op it sends to the mirror too, so each tick only the rows that differ go out.
+ * Not thread-safe; call it on the thread driving the engine.
+ */
+public final class SyncEncoder {
+    private final Board mirror;
+    // Clear and push ops seen since the last payload, in order
+    private final ByteBuffer events = ByteBuffer.allocate(256);
+    private int attack;
+    private int sentPiece = -1; // Packed type, rotation and position; -1 for none
+    private int sentScore, sentLines;
+    private boolean sentTopOut;
+
+    /** Versus boards must fit {@link Board#packedRow}, at most {@link Board#MAX_PACKED_WIDTH} wide. */
+    public SyncEncoder(int width, int height) {
+        if (width > Board.MAX_PACKED_WIDTH) {
+            throw new IllegalArgumentException("versus boards are at most " + Board.MAX_PACKED_WIDTH + " wide: " + width);
+        }
+        mirror = new Board(width, height);
+    }
+
+    /** Call from {@link GameEngine.Listener#onRowCleared}. */
+    public void rowCleared(int y) {
+        // Dropping an event is safe as long as the mirror skips it too: the row diff covers it
+        if (events.remaining() < 1 + Varints.MAX_BYTES) return;
+        events.put(SyncProtocol.OP_CLEAR_ROW);
+        Varints.put(events, y);
+        mirror.removeRow(y);
+    }
+
+    /** Call from {@link GameEngine.Listener#onGarbageAdded}. */
+    public void garbageAdded(int lines, int holeColumn) {
+        if (events.remaining() < 1 + 2 * Varints.MAX_BYTES) return;
+        events.put(SyncProtocol.OP_PUSH);
+        Varints.put(events, lines);
+        Varints.put(events, holeColumn);
+        mirror.pushUp(lines, holeColumn);
+    }
+
+    /** Adds garbage lines for the peer to the next payload. */
+    public void attack(int lines) {
+        attack += lines;
+    }
+
+    /**
+     * Writes everything that changed since the last call into {@code out}, plus a ping
+     * when {@code pingMicros} and a pong when {@code pongMicros} are not negative.
+     * {@code out} needs room for {@link SyncProtocol#MAX_PAYLOAD} bytes. Returns the bytes
+     * written, 0 if there was nothing to send.
+     */
+    public int encode(GameEngine engine, long pingMicros, long pongMicros, ByteBuffer out) {
+        int start = out.position();
+        ((Buffer) events).flip();
+        out.put(events);
+        events.clear();
+        encodeRows(engine.getBoard(), out);
+
+        int piece = engine.isGameOver() ? -1 : packPiece(engine);
+        if (piece != sentPiece) {
+            if (piece < 0) {
+                out.put(SyncProtocol.OP_NO_PIECE);
+            } else {
+                out.put(SyncProtocol.OP_PIECE);
+                out.put((byte) (engine.getShapeType() | engine.getRotation() << 3));
+                Varints.put(out, Varints.zigZag(engine.getShapeX()));
+                Varints.put(out, engine.getShapeY() + 2);
+            }
+            sentPiece = piece;
+        }
+        if (engine.getScore() != sentScore || engine.getLinesCleared() != sentLines) {
+            sentScore = engine.getScore();
+            sentLines = engine.getLinesCleared();
+            out.put(SyncProtocol.OP_SCORE);
+            Varints.put(out, sentScore);
+            Varints.put(out, sentLines);
+        }
+        if (attack > 0) {
+            out.put(SyncProtocol.OP_ATTACK);
+            Varints.put(out, attack);
+            attack = 0;
+        }
+        if (engine.isGameOver() && !sentTopOut) {
+            out.put(SyncProtocol.OP_TOP_OUT);
+            sentTopOut = true;
+        }
+        if (pingMicros >= 0) {
+            out.put(SyncProtocol.OP_PING);
+            Varints.put(out, pingMicros);
+        }
+        if (pongMicros >= 0) {
+            out.put(SyncProtocol.OP_PONG);
+            Varints.put(out, pongMicros);
+        }
+        return out.position() - start;
+    }
+
+    // Sends every row where the board and mirror differ, then brings the mirror up to date
+    private void encodeRows(Board board, ByteBuffer out) {
+        int count = 0;
+        for (int y = 0; y < board.height(); y++) {
+            if (board.packedRow(y) != mirror.packedRow(y)) count++;
+        }
+        if (count == 0) return;
+        out.put(SyncProtocol.OP_ROWS);
+        Varints.put(out, count);
+        int previous = -1;
+        for (int y = 0; y < board.height(); y++) {
+            long packed = board.packedRow(y);
+            long seen = mirror.packedRow(y);
+            if (packed == seen) continue;
+            int gap = y - previous - 1;
+            previous = y;
+            long added = board.rowMask(y) & ~mirror.rowMask(y);
+            int value = added != 0 ? board.get(Long.numberOfTrailingZeros(added), y) : 0;
+            if (added != 0 && (packed ^ seen) == fill(added, value)) {
+                // Only new cells, all one colour: a locked piece's usual footprint
+                Varints.put(out, (long) gap << 1 | SyncProtocol.ROW_ADDED);
+                Varints.put(out, added << 4 | value);
+            } else {
+                Varints.put(out, (long) gap << 1 | SyncProtocol.ROW_FULL);
+                Varints.put(out, packed);
+            }
+            mirror.setPackedRow(y, packed);
+        }
+    }
+
+    /** {@code value} in every 4-bit cell of {@code mask}. */
+    static long fill(long mask, int value) {
+        long packed = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            packed |= (long) value << (4 * Long.numberOfTrailingZeros(mask));
+        }
+        return packed;
+    }
+
+    private static int packPiece(GameEngine engine) {
+        // Offsets keep x (which can hang past the left wall) and y non-negative
+        return engine.getShapeType() | engine.getRotation() << 3
+                | (engine.getShapeX() + 4) << 5 | (engine.getShapeY() + 4) << 12;
+    }
+}
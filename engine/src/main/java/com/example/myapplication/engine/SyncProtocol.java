@@ -0,0 +1,52 @@
+package com.example.myapplication.engine;
+
+/**
+ * Wire format of versus games. Each peer sends at most one frame per sync tick: a
+ * big-endian {@code u16} payload length, then a payload of ops, each an op byte followed
+ * by its varint arguments. Frames are only sent when something changed or a ping is due,
+ * so a player who is just waiting for gravity costs nothing.
+ *
+ * <p>Board changes are sent as deltas against the copy the peer already has: line clears
+ * and garbage pushes as one small op each, replayed on the peer's copy, then every row that
+ * still differs as either the cells added in one colour (a locked piece) or the whole
+ * packed row. The relay pairs two connections and otherwise forwards frames untouched.
+ */
+public final class SyncProtocol {
+    /** Bytes of the length prefix in front of every payload. */
+    public static final int HEADER_BYTES = 2;
+    /** Largest payload a frame may carry. */
+    public static final int MAX_PAYLOAD = 1024;
+
+    /** Row {@code y} was cleared: {@code y}. */
+    static final byte OP_CLEAR_ROW = 1;
+    /** Garbage pushed the stack up: {@code lines, holeColumn}. */
+    static final byte OP_PUSH = 2;
+    /**
+     * Rows that still differ: {@code count}, then per row {@code (gap << 1) | kind}, where
+     * gap is the rows skipped since the previous one, and for kind 0 {@code (addedMask << 4)
+     * | value}, for kind 1 the whole {@link Board#packedRow}.
+     */
+    static final byte OP_ROWS = 3;
+    /** The falling piece: {@code type | rotation << 3, zigzag(x), y + 2}. */
+    static final byte OP_PIECE = 4;
+    /** Piece gone, e.g. after topping out. */
+    static final byte OP_NO_PIECE = 5;
+    /** {@code score, linesCleared}. */
+    static final byte OP_SCORE = 6;
+    /** Garbage lines sent to the peer: {@code lines}. */
+    static final byte OP_ATTACK = 7;
+    /** The sender topped out. */
+    static final byte OP_TOP_OUT = 8;
+    /** Sent by the relay once both players are connected. */
+    public static final byte OP_PAIRED = 9;
+    /** {@code senderMicros}, to be echoed back in an {@link #OP_PONG}. */
+    static final byte OP_PING = 10;
+    /** {@code echoedMicros} of the peer's last ping. */
+    static final byte OP_PONG = 11;
+
+    static final int ROW_ADDED = 0;
+    static final int ROW_FULL = 1;
+
+    private SyncProtocol() {
+    }
+}
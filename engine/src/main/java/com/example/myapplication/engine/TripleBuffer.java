@@ -0,0 +1,45 @@
+package com.example.myapplication.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the latest of a stream of values from one producer thread to one consumer thread
+ * without locks. There are three slots: the producer fills its back slot and
+ * {@link #publish}es it, swapping it with the shared middle slot; the consumer
+ * {@link #acquire}s by swapping its front slot with the middle one if that holds something
+ * newer. Neither side ever waits, and each owns its slot exclusively until it swaps it
+ * away, so slots can be reused objects filled in place. A value the consumer was too slow to
+ * take is replaced by the next one.
+ */
+public final class TripleBuffer<T> {
+    private static final int INDEX = 3;
+    private static final int FRESH = 4; // Set on middle when it holds a value the consumer has not taken
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back; // Producer's slot
+    private int front = 2; // Consumer's slot
+
+    /** {@code a} starts as the producer's slot; the consumer sees {@code c} until the first publish. */
+    public TripleBuffer(T a, T b, T c) {
+        slots = new Object[]{a, b, c};
+    }
+
+    /** The slot to fill before the next {@link #publish}. Producer thread only. */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) slots[back];
+    }
+
+    /** Makes the back slot the newest value and gives the producer a free slot. Producer thread only. */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /** The newest published value, which stays valid until the next call. Consumer thread only. */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & INDEX;
+        return (T) slots[front];
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.myapplication.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** LEB128 unsigned varints, 7 bits per byte, shared by the replay and sync formats. */
+final class Varints {
+    /** Most bytes a 64-bit varint can take. */
+    static final int MAX_BYTES = 10;
+
+    private Varints() {
+    }
+
+    static void put(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long get(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) throw new IOException("Truncated varint");
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /** Maps small negative numbers to small varints: 0, -1, 1, -2 become 0, 1, 2, 3. */
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
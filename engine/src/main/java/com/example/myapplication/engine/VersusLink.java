@@ -0,0 +1,178 @@
+package com.example.myapplication.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Non-blocking TCP connection to the versus relay, framed as in {@link SyncProtocol}.
+ * Connecting, reading and writing happen on the link's own selector thread; the game
+ * thread only copies frames in and out of two buffers, so it never waits on the network.
+ */
+public final class VersusLink implements Closeable {
+    public static final int CONNECTING = 0;
+    public static final int CONNECTED = 1;
+    public static final int CLOSED = 2;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final InetSocketAddress address;
+    private final Selector selector;
+    // Guarded by themselves; both are left in write mode between calls
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer inbound = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private volatile int state = CONNECTING;
+    private volatile IOException error;
+    private volatile long bytesSent, bytesReceived;
+
+    /** Starts connecting to {@code host:port} in the background. */
+    public VersusLink(String host, int port) throws IOException {
+        address = InetSocketAddress.createUnresolved(host, port);
+        selector = Selector.open();
+        Thread thread = new Thread(this::run, "VersusLink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** {@link #CONNECTING}, {@link #CONNECTED} or {@link #CLOSED}. */
+    public int state() {
+        return state;
+    }
+
+    /** Why the link closed, or null if it was closed on purpose or is still open. */
+    public IOException error() {
+        return error;
+    }
+
+    /** Bytes written to the socket so far, length prefixes included. */
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    public long bytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Queues the payload between {@code payload}'s position and limit as one frame. Returns
+     * false, sending nothing, if the link is closed or too far behind to take it.
+     */
+    public boolean send(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length > SyncProtocol.MAX_PAYLOAD) throw new IllegalArgumentException("Payload too large: " + length);
+        if (state == CLOSED) return false;
+        synchronized (outbound) {
+            if (outbound.remaining() < SyncProtocol.HEADER_BYTES + length) return false;
+            outbound.putShort((short) length);
+            outbound.put(payload);
+        }
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Whether a frame of {@code bytes}, length prefix included, would be queued now. Only the
+     * sending thread fills the buffer, so for that thread the answer holds until it sends.
+     */
+    public boolean canSend(int bytes) {
+        if (state == CLOSED) return false;
+        synchronized (outbound) {
+            return outbound.remaining() >= bytes;
+        }
+    }
+
+    /**
+     * Copies the next complete frame's payload into {@code dest}, cleared first and flipped
+     * after, and returns true, or returns false if no whole frame has arrived yet. A frame
+     * longer than {@link SyncProtocol#MAX_PAYLOAD}, or than {@code dest} holds, is a protocol
+     * error: the link closes with it as its {@link #error}.
+     */
+    public boolean receive(ByteBuffer dest) {
+        synchronized (inbound) {
+            if (state == CLOSED || inbound.position() < SyncProtocol.HEADER_BYTES) return false;
+            int length = inbound.getShort(0) & 0xFFFF;
+            if (length > SyncProtocol.MAX_PAYLOAD || length > dest.capacity()) {
+                fail(new IOException("Frame too large: " + length));
+                return false;
+            }
+            if (inbound.position() < SyncProtocol.HEADER_BYTES + length) return false;
+            ((Buffer) inbound).flip();
+            ((Buffer) inbound).position(SyncProtocol.HEADER_BYTES);
+            ByteBuffer payload = inbound.duplicate();
+            ((Buffer) payload).limit(SyncProtocol.HEADER_BYTES + length);
+            ((Buffer) dest).clear();
+            dest.put(payload);
+            ((Buffer) dest).flip();
+            ((Buffer) inbound).position(SyncProtocol.HEADER_BYTES + length);
+            inbound.compact();
+            return true;
+        }
+    }
+
+    @Override
+    public void close() {
+        state = CLOSED;
+        selector.wakeup();
+    }
+
+    private void fail(IOException e) {
+        if (state != CLOSED) error = e;
+        close();
+    }
+
+    private void run() {
+        try (SocketChannel channel = SocketChannel.open()) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true); // Frames are tiny and latency matters more
+            // Resolving here keeps DNS off the caller's thread
+            channel.connect(new InetSocketAddress(address.getHostString(), address.getPort()));
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT);
+            while (state != CLOSED) {
+                selector.select();
+                if (state == CLOSED) break;
+                if (key.isConnectable() && channel.finishConnect()) {
+                    state = CONNECTED;
+                }
+                if (state != CONNECTED) continue;
+                if (key.isReadable() && !read(channel)) break;
+                boolean pending = write(channel);
+                key.interestOps(SelectionKey.OP_READ | (pending ? SelectionKey.OP_WRITE : 0));
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            state = CLOSED;
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Returns false once the relay has closed the connection
+    private boolean read(SocketChannel channel) throws IOException {
+        synchronized (inbound) {
+            if (!inbound.hasRemaining()) throw new IOException("Inbound buffer full");
+            int n = channel.read(inbound);
+            if (n < 0) return false;
+            bytesReceived += n;
+            return true;
+        }
+    }
+
+    // Returns true if bytes are still waiting for the socket to drain
+    private boolean write(SocketChannel channel) throws IOException {
+        synchronized (outbound) {
+            if (outbound.position() == 0) return false;
+            ((Buffer) outbound).flip();
+            bytesSent += channel.write(outbound);
+            outbound.compact();
+            return outbound.position() != 0;
+        }
+    }
+}
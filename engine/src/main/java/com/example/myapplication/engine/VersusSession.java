@@ -0,0 +1,168 @@
+package com.example.myapplication.engine;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * One side of a versus game: syncs the local engine to the peer through a
+ * {@link VersusLink} and turns line clears into garbage for the other player. Clearing
+ * 2, 3 or 4 lines sends 1, 2 or 4 garbage lines, which first cancel garbage still waiting
+ * to land on our own board. Waiting garbage lands when a piece locks without clearing.
+ *
+ * <p>Call {@link #tick} at a fixed rate on the thread driving the engine; it never blocks.
+ */
+public final class VersusSession implements GameEngine.Listener {
+    /** Ticks between pings, for measuring round trips through the relay. */
+    public static final int PING_INTERVAL = 10;
+    private static final int[] ATTACK = {0, 0, 1, 2, 4};
+
+    private final GameEngine engine;
+    private final VersusLink link;
+    private final SyncEncoder encoder;
+    private final SyncDecoder opponent;
+    private final Random holes;
+    private final ByteBuffer frame = ByteBuffer.allocate(SyncProtocol.MAX_PAYLOAD);
+    private int pendingGarbage;
+    private IOException error;
+
+    // Traffic and latency, for tuning the format
+    private long ticks, ticksSkipped, framesSent, payloadBytes;
+    private int maxFrameBytes;
+    private long rttCount, rttSumMicros, rttMaxMicros, lastRttMicros = -1;
+
+    /**
+     * Listens to {@code engine} until removed with {@link GameEngine#removeListener}.
+     * {@code seed} picks the garbage holes, so a recorded versus game can be checked like a replay.
+     */
+    public VersusSession(GameEngine engine, VersusLink link, long seed) {
+        this.engine = engine;
+        this.link = link;
+        Board board = engine.getBoard();
+        encoder = new SyncEncoder(board.width(), board.height());
+        opponent = new SyncDecoder(board.width(), board.height());
+        holes = new Random(seed);
+        engine.addListener(this);
+    }
+
+    /** Applies what the peer sent, then sends this tick's changes. */
+    public void tick(long nowNanos) {
+        long nowMicros = nowNanos / 1000;
+        while (error == null && link.receive(frame)) {
+            try {
+                opponent.apply(frame);
+            } catch (IOException e) {
+                error = e; // A peer on another version; stop applying its frames
+                link.close();
+            }
+        }
+        pendingGarbage += opponent.takeAttack();
+        long pong = opponent.takePong();
+        if (pong >= 0) {
+            lastRttMicros = nowMicros - pong;
+            rttCount++;
+            rttSumMicros += lastRttMicros;
+            rttMaxMicros = Math.max(rttMaxMicros, lastRttMicros);
+        }
+
+        ticks++;
+        if (!opponent.isPaired()) return; // Nobody to send to yet
+        // Encoding marks the changes as sent, so on a backed-up link leave them for a later tick
+        if (!link.canSend(SyncProtocol.HEADER_BYTES + SyncProtocol.MAX_PAYLOAD)) {
+            ticksSkipped++;
+            return;
+        }
+        ((Buffer) frame).clear();
+        long ping = ticks % PING_INTERVAL == 0 ? nowMicros : -1;
+        int bytes = encoder.encode(engine, ping, opponent.takePing(), frame);
+        if (bytes == 0) return;
+        ((Buffer) frame).flip();
+        if (link.send(frame)) {
+            framesSent++;
+            payloadBytes += bytes;
+            maxFrameBytes = Math.max(maxFrameBytes, bytes);
+        }
+    }
+
+    @Override
+    public void onRowCleared(int y) {
+        encoder.rowCleared(y);
+    }
+
+    @Override
+    public void onLock(int linesCleared) {
+        int attack = ATTACK[Math.min(linesCleared, ATTACK.length - 1)];
+        int cancelled = Math.min(attack, pendingGarbage);
+        pendingGarbage -= cancelled;
+        attack -= cancelled;
+        if (attack > 0) encoder.attack(attack);
+        if (linesCleared == 0 && pendingGarbage > 0) {
+            int lines = pendingGarbage;
+            pendingGarbage = 0;
+            engine.addGarbage(lines, holes.nextInt(engine.getBoard().width()));
+        }
+    }
+
+    @Override
+    public void onGarbageAdded(int lines, int holeColumn) {
+        encoder.garbageAdded(lines, holeColumn);
+    }
+
+    /** The peer's game as last synced. */
+    public SyncDecoder opponent() {
+        return opponent;
+    }
+
+    public VersusLink link() {
+        return link;
+    }
+
+    /** Garbage lines that will land on the next lock that clears nothing. */
+    public int pendingGarbage() {
+        return pendingGarbage;
+    }
+
+    /** Why syncing stopped, or null. */
+    public IOException error() {
+        return error != null ? error : link.error();
+    }
+
+    public long ticks() {
+        return ticks;
+    }
+
+    /** Ticks that sent nothing because the link was too far behind. */
+    public long ticksSkipped() {
+        return ticksSkipped;
+    }
+
+    public long framesSent() {
+        return framesSent;
+    }
+
+    /** Payload bytes sent, not counting length prefixes. */
+    public long payloadBytes() {
+        return payloadBytes;
+    }
+
+    public int maxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    /**
+     * Latest ping round trip through the relay in microseconds, or -1 before the first. Pongs
+     * ride on the peer's next sync frame, so this includes up to a tick of waiting per side.
+     */
+    public long lastRttMicros() {
+        return lastRttMicros;
+    }
+
+    public long meanRttMicros() {
+        return rttCount == 0 ? -1 : rttSumMicros / rttCount;
+    }
+
+    public long maxRttMicros() {
+        return rttMaxMicros;
+    }
+}
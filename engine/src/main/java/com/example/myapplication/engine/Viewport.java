@@ -0,0 +1,59 @@
+package com.example.myapplication.engine;
+
+/**
+ * Vertical camera over a board that may be taller than the screen. Views draw only rows
+ * {@link #top()} to {@link #bottom()}, so drawing costs the same on a 2000-row board as on
+ * a 20-row one. The camera scrolls only when the followed rows get within a quarter of a
+ * screen of its edges, so it does not jitter with every row the piece falls.
+ */
+public final class Viewport {
+    private int boardHeight;
+    private int visibleRows;
+    private int top;
+
+    /** Shows up to {@code visibleRows} rows of a board {@code boardHeight} rows tall, from the top. */
+    public void setSize(int boardHeight, int visibleRows) {
+        this.boardHeight = boardHeight;
+        this.visibleRows = Math.max(1, Math.min(visibleRows, boardHeight));
+        top = 0;
+    }
+
+    /** First visible row. */
+    public int top() {
+        return top;
+    }
+
+    /** One past the last visible row. */
+    public int bottom() {
+        return top + visibleRows;
+    }
+
+    public int visibleRows() {
+        return visibleRows;
+    }
+
+    /** True if the view shows the whole board, so it never scrolls. */
+    public boolean showsAll() {
+        return visibleRows == boardHeight;
+    }
+
+    /** Scrolls just enough to keep rows {@code firstRow} to {@code lastRow} inside the margins. */
+    public void follow(int firstRow, int lastRow) {
+        int margin = visibleRows / 4;
+        if (firstRow - margin < top) {
+            top = firstRow - margin;
+        } else if (lastRow + margin >= top + visibleRows) {
+            top = lastRow + margin - visibleRows + 1;
+        }
+        top = Math.max(0, Math.min(top, boardHeight - visibleRows));
+    }
+
+    /** {@link #follow} the game's falling piece, and where it will land if that fits in view too. */
+    public void follow(GameState engine) {
+        int type = engine.getShapeType(), rotation = engine.getRotation();
+        int first = engine.getShapeY() + Pieces.minRow(type, rotation);
+        int last = engine.getShapeY() + Pieces.maxRow(type, rotation);
+        int landed = engine.getGhostY() + Pieces.maxRow(type, rotation);
+        follow(first, landed - first < visibleRows / 2 ? landed : last);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.myapplication.relay;
+
+import com.example.myapplication.engine.SyncProtocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Pairs versus players in connection order and forwards bytes between the two of each
+ * pair, on a single selector thread. The relay does not parse frames: besides the
+ * {@link SyncProtocol#OP_PAIRED} frame it sends each player once its partner connects,
+ * it only copies bytes, and it stops reading from a player whose partner is not keeping
+ * up. When either player disconnects the other is disconnected too.
+ *
+ * <pre>
+ * --port P   port to listen on (default 7777, 0 for any free port)
+ * </pre>
+ */
+public final class RelayServer implements Closeable {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ByteBuffer discard = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private Player waiting; // Connected player without a partner yet
+    private volatile boolean closed;
+
+    private static final class Player {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer outbound = ByteBuffer.allocateDirect(BUFFER_SIZE); // Write mode
+        Player partner;
+
+        Player(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    public RelayServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** The port actually bound, useful when constructed with port 0. */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Serves until {@link #close} is called. */
+    public void run() throws IOException {
+        try {
+            while (!closed) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Player player = (Player) key.attachment();
+                    try {
+                        if (key.isReadable()) forward(player);
+                        if (key.isValid() && key.isWritable()) flush(player);
+                    } catch (IOException e) {
+                        disconnect(player);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) key.channel().close();
+            selector.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        Player player = new Player(channel, key);
+        key.attach(player);
+        if (waiting == null) {
+            waiting = player;
+            return;
+        }
+        player.partner = waiting;
+        waiting.partner = player;
+        waiting = null;
+        for (Player p : new Player[]{player, player.partner}) {
+            p.outbound.putShort((short) 1).put(SyncProtocol.OP_PAIRED);
+            try {
+                flush(p);
+            } catch (IOException e) {
+                disconnect(p);
+                return;
+            }
+        }
+    }
+
+    // Reads straight into the partner's outbound buffer, then tries to pass it on
+    private void forward(Player player) throws IOException {
+        Player partner = player.partner;
+        ByteBuffer target = partner != null ? partner.outbound : discard;
+        if (partner == null) ((Buffer) discard).clear();
+        if (player.channel.read(target) < 0) {
+            disconnect(player);
+            return;
+        }
+        if (partner == null) return; // Nobody to hear it yet; drop
+        flush(partner);
+        if (!partner.outbound.hasRemaining()) {
+            player.key.interestOps(0); // Partner is behind: stop reading until it drains
+        }
+    }
+
+    private void flush(Player player) throws IOException {
+        ByteBuffer out = player.outbound;
+        ((Buffer) out).flip();
+        player.channel.write(out);
+        out.compact();
+        boolean pending = out.position() != 0;
+        player.key.interestOps(pending ? player.key.interestOps() | SelectionKey.OP_WRITE
+                : player.key.interestOps() & ~SelectionKey.OP_WRITE);
+        // Room again: resume reading from the partner if it was paused
+        Player partner = player.partner;
+        if (partner != null && out.hasRemaining() && partner.key.isValid()) {
+            partner.key.interestOps(partner.key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(Player player) {
+        if (waiting == player) waiting = null;
+        player.key.cancel();
+        try {
+            player.channel.close();
+        } catch (IOException ignored) {
+        }
+        Player partner = player.partner;
+        if (partner != null) {
+            partner.partner = null;
+            player.partner = null;
+            disconnect(partner);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+        try (RelayServer relay = new RelayServer(port)) {
+            System.out.println("Relay listening on port " + relay.port());
+            relay.run();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.AutoPlayer;
+import com.example.myapplication.engine.GameEngine;
+
+/** Plays each piece where the heuristic {@link AutoPlayer} puts it. */
+final class AiPolicy implements PiecePolicy {
+    private final AutoPlayer player;
+
+    AiPolicy(int lookahead, int beamWidth) {
+        player = new AutoPlayer(lookahead, beamWidth);
+    }
+
+    @Override
+    public void reset(long seed) {
+        // Deterministic: the piece sequence alone decides every move
+    }
+
+    @Override
+    public void place(GameEngine engine) {
+        if (player.think(engine)) {
+            player.steer(engine);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.myapplication.simulator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays large numbers of seeded, deterministic games headlessly across all cores and
+ * reports throughput. Game {@code i} always uses seed {@code seed + i}, so any single game
+ * can be replayed on its own.
+ *
+ * <pre>
+ * --games N       number of games (default 100000)
+ * --seed S        base seed (default 0)
+ * --threads T     worker threads (default: available processors)
+ * --max-pieces M  stop a game after M pieces (default 100000)
+ * --ai L          place pieces with the heuristic AutoPlayer searching L preview pieces
+ *                 (default: random placements)
+ * --beam B        beam width for --ai (default 8)
+ * --out FILE      per-game records, see GameRecordWriter (default: none)
+ * </pre>
+ */
+public final class BatchSimulator {
+    private BatchSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        long games = 100_000;
+        long seed = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPieces = 100_000;
+        Path out = null;
+        int aiLookahead = -1;
+        int beamWidth = 8;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--games":
+                    games = Long.parseLong(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--max-pieces":
+                    maxPieces = Integer.parseInt(value);
+                    break;
+                case "--out":
+                    out = Paths.get(value);
+                    break;
+                case "--ai":
+                    aiLookahead = Integer.parseInt(value);
+                    break;
+                case "--beam":
+                    beamWidth = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+
+        GameRecordWriter writer = out != null ? new GameRecordWriter(out) : null;
+        AtomicLong nextGame = new AtomicLong();
+        List<SimulationWorker> workers = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long startNanos = System.nanoTime();
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                PiecePolicy policy = aiLookahead >= 0 ? new AiPolicy(aiLookahead, beamWidth) : new RandomPolicy();
+                SimulationWorker worker = new SimulationWorker(nextGame, games, seed, maxPieces, policy, writer);
+                workers.add(worker);
+                running.add(pool.submit(worker));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            if (writer != null) writer.close();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long totalPieces = 0, totalLines = 0, totalScore = 0;
+        for (SimulationWorker worker : workers) {
+            totalPieces += worker.pieces;
+            totalLines += worker.lines;
+            totalScore += worker.score;
+        }
+        System.out.printf("%d games on %d threads in %.2f s%n", games, threads, seconds);
+        System.out.printf("%.0f games/s, %.0f pieces/s%n", games / seconds, totalPieces / seconds);
+        System.out.printf("mean score %.1f, mean lines %.2f, mean pieces %.1f%n",
+                totalScore / (double) games, totalLines / (double) games, totalPieces / (double) games);
+    }
+}
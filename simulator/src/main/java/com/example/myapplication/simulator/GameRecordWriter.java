@@ -0,0 +1,50 @@
+package com.example.myapplication.simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary file of per-game results, shared by all workers.
+ *
+ * <p>Layout (big-endian): a header of magic {@code "TSIM"}, a version short and the record
+ * size short, followed by fixed-size records of seed (long), score (int), lines (int),
+ * pieces (int) and top-out cause (byte). Workers fill their own buffers and hand over
+ * whole chunks, so records from different threads interleave in blocks, not in order.
+ */
+final class GameRecordWriter implements AutoCloseable {
+    static final int MAGIC = 0x5453494D; // "TSIM"
+    static final short VERSION = 1;
+    static final int RECORD_SIZE = 8 + 4 + 4 + 4 + 1;
+
+    static final byte CAUSE_BLOCK_OUT = 0; // Next piece could not spawn
+    static final byte CAUSE_PIECE_LIMIT = 1; // Stopped at the per-game piece cap
+
+    private final FileChannel channel;
+
+    GameRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).flip();
+        write(header);
+    }
+
+    static void putRecord(ByteBuffer buffer, long seed, int score, int lines, int pieces, byte cause) {
+        buffer.putLong(seed).putInt(score).putInt(lines).putInt(pieces).put(cause);
+    }
+
+    /** Writes the buffer's remaining bytes; the caller reuses the buffer afterwards. */
+    synchronized void write(ByteBuffer chunk) throws IOException {
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.GameEngine;
+
+/** Decides where the current piece goes. One instance per worker thread, reused across games. */
+interface PiecePolicy {
+    /** Called before each game so the policy's own choices are reproducible from the seed. */
+    void reset(long seed);
+
+    /** Shifts and rotates the engine's current piece; the simulator then drops and locks it. */
+    void place(GameEngine engine);
+}
@@ -0,0 +1,26 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.GameEngine;
+
+import java.util.Random;
+
+/** Random rotation and shift, the baseline a tuned policy has to beat. */
+final class RandomPolicy implements PiecePolicy {
+    private final Random random = new Random();
+
+    @Override
+    public void reset(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public void place(GameEngine engine) {
+        int rotations = random.nextInt(4);
+        for (int i = 0; i < rotations; i++) engine.rotate();
+        int shift = random.nextInt(11) - 5;
+        for (int i = 0; i < Math.abs(shift); i++) {
+            if (shift < 0) engine.moveLeft();
+            else engine.moveRight();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.Replay;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Re-simulates recorded games headlessly and checks each one ends in its recorded final
+ * state. Exits with status 1 if any replay fails, so it can gate CI on recorded games.
+ *
+ * <pre>
+ * ./gradlew :simulator:verifyReplay --args="last.replay other.replay"
+ * </pre>
+ */
+public final class ReplayVerifier {
+    private ReplayVerifier() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        GameEngine engine = new GameEngine();
+        int failed = 0;
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            Replay replay;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                replay = Replay.read(channel);
+            }
+            long startNanos = System.nanoTime();
+            boolean ok = replay.verify(engine);
+            double millis = (System.nanoTime() - startNanos) / 1e6;
+            String result = ok ? "OK" : replay.isComplete() ? "MISMATCH" : "INCOMPLETE";
+            System.out.printf("%s: %s, %d inputs, score %d, lines %d in %.2f ms%n", path, result,
+                    replay.size(), engine.getScore(), engine.getLinesCleared(), millis);
+            if (!ok) failed++;
+        }
+        if (failed > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.GameEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays games on one thread. Owns its engine, RNGs and output buffer for its whole life, so
+ * nothing is allocated per game; it claims games in chunks from a shared counter so fast
+ * workers keep pulling work while slow ones finish theirs.
+ */
+final class SimulationWorker implements Runnable {
+    private static final int CHUNK = 256;
+    private static final int RECORDS_PER_FLUSH = 4096;
+
+    private final AtomicLong nextGame;
+    private final long totalGames;
+    private final long baseSeed;
+    private final int maxPieces;
+    private final GameRecordWriter writer;
+
+    private final GameEngine engine = new GameEngine(new Random());
+    private final PiecePolicy policy;
+    private final ByteBuffer buffer;
+
+    long games, pieces, lines, score;
+
+    SimulationWorker(AtomicLong nextGame, long totalGames, long baseSeed, int maxPieces,
+                     PiecePolicy policy, GameRecordWriter writer) {
+        this.nextGame = nextGame;
+        this.totalGames = totalGames;
+        this.baseSeed = baseSeed;
+        this.maxPieces = maxPieces;
+        this.policy = policy;
+        this.writer = writer;
+        this.buffer = writer != null ? ByteBuffer.allocate(RECORDS_PER_FLUSH * GameRecordWriter.RECORD_SIZE) : null;
+    }
+
+    @Override
+    public void run() {
+        long start;
+        while ((start = nextGame.getAndAdd(CHUNK)) < totalGames) {
+            long end = Math.min(start + CHUNK, totalGames);
+            for (long game = start; game < end; game++) {
+                playGame(baseSeed + game);
+            }
+        }
+        flush();
+    }
+
+    private void playGame(long seed) {
+        engine.reset(seed);
+        policy.reset(~seed); // Independent stream from the piece sequence
+        while (!engine.isGameOver() && engine.getPiecesPlaced() < maxPieces) {
+            policy.place(engine);
+            engine.hardDrop(); // Lands where falling row by row would, via the skyline
+        }
+        byte cause = engine.isGameOver() ? GameRecordWriter.CAUSE_BLOCK_OUT : GameRecordWriter.CAUSE_PIECE_LIMIT;
+
+        games++;
+        pieces += engine.getPiecesPlaced();
+        lines += engine.getLinesCleared();
+        score += engine.getScore();
+        if (buffer != null) {
+            if (buffer.remaining() < GameRecordWriter.RECORD_SIZE) flush();
+            GameRecordWriter.putRecord(buffer, seed, engine.getScore(), engine.getLinesCleared(),
+                    engine.getPiecesPlaced(), cause);
+        }
+    }
+
+    private void flush() {
+        if (buffer == null) return;
+        buffer.flip();
+        try {
+            writer.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
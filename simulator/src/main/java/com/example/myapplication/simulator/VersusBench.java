@@ -0,0 +1,154 @@
+package com.example.myapplication.simulator;
+
+import com.example.myapplication.engine.AutoPlayer;
+import com.example.myapplication.engine.GameEngine;
+import com.example.myapplication.engine.Input;
+import com.example.myapplication.engine.VersusLink;
+import com.example.myapplication.engine.VersusSession;
+import com.example.myapplication.relay.RelayServer;
+
+import java.io.IOException;
+
+/**
+ * Plays two AI players against each other through a relay on localhost and reports what
+ * syncing costs: payload bytes per tick and per frame, and ping round trips through the
+ * relay. At the end each side's copy of the other's board is checked against the real one.
+ *
+ * <pre>
+ * --ticks N     sync ticks to play (default 2000)
+ * --tick-ms T   milliseconds between ticks (default 50, the app's rate)
+ * --inputs I    AI inputs per tick, gravity included (default 2)
+ * --seed S      piece and garbage seed (default 0)
+ * --relay H:P   use a running relay instead of starting one
+ * </pre>
+ */
+public final class VersusBench {
+    private VersusBench() {
+    }
+
+    private static final class Player {
+        final GameEngine engine = new GameEngine();
+        final AutoPlayer ai = new AutoPlayer();
+        final VersusSession session;
+        int thoughtFor = -1; // Pieces placed when the AI last picked a target
+
+        Player(String host, int port, long seed) throws IOException {
+            engine.reset(seed);
+            session = new VersusSession(engine, new VersusLink(host, port), seed);
+        }
+
+        void play(int inputs) {
+            for (int i = 0; i < inputs && !engine.isGameOver(); i++) {
+                if (thoughtFor != engine.getPiecesPlaced()) {
+                    thoughtFor = engine.getPiecesPlaced();
+                    ai.think(engine);
+                }
+                int input = ai.nextInput(engine);
+                if (input == Input.NONE || !engine.apply(input)) engine.moveDown();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int ticks = 2000;
+        long tickMillis = 50;
+        int inputs = 2;
+        long seed = 0;
+        String relayAddress = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--ticks":
+                    ticks = Integer.parseInt(value);
+                    break;
+                case "--tick-ms":
+                    tickMillis = Long.parseLong(value);
+                    break;
+                case "--inputs":
+                    inputs = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--relay":
+                    relayAddress = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+
+        RelayServer relay = null;
+        String host = "localhost";
+        int port;
+        if (relayAddress == null) {
+            relay = new RelayServer(0);
+            port = relay.port();
+            RelayServer server = relay;
+            Thread thread = new Thread(() -> {
+                try {
+                    server.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "Relay");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            int colon = relayAddress.lastIndexOf(':');
+            host = relayAddress.substring(0, colon);
+            port = Integer.parseInt(relayAddress.substring(colon + 1));
+        }
+
+        Player a = new Player(host, port, seed);
+        Player b = new Player(host, port, seed + 1);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!a.session.opponent().isPaired() || !b.session.opponent().isPaired()) {
+            if (System.nanoTime() > deadline) throw new IOException("Not paired", a.session.error());
+            a.session.tick(System.nanoTime());
+            b.session.tick(System.nanoTime());
+            Thread.sleep(1);
+        }
+
+        long next = System.nanoTime();
+        int played = 0;
+        for (; played < ticks && !(a.engine.isGameOver() && b.engine.isGameOver()); played++) {
+            a.play(inputs);
+            b.play(inputs);
+            a.session.tick(System.nanoTime());
+            b.session.tick(System.nanoTime());
+            next += tickMillis * 1_000_000L;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
+        }
+        // A few idle ticks so the last frames land on both sides
+        for (int i = 0; i < 20; i++) {
+            a.session.tick(System.nanoTime());
+            b.session.tick(System.nanoTime());
+            Thread.sleep(tickMillis);
+        }
+
+        boolean ok = report("A", a, b) & report("B", b, a);
+        a.session.link().close();
+        b.session.link().close();
+        if (relay != null) relay.close();
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean report(String name, Player player, Player peer) {
+        VersusSession s = player.session;
+        boolean inSync = peer.session.opponent().board().contentHash() == player.engine.getBoard().contentHash();
+        System.out.printf("%s: %d ticks, %d pieces, %d lines, score %d%s%n", name, s.ticks(),
+                player.engine.getPiecesPlaced(), player.engine.getLinesCleared(), player.engine.getScore(),
+                player.engine.isGameOver() ? ", topped out" : "");
+        System.out.printf("   %d frames, %.2f payload bytes/tick, %.2f bytes/frame, max %d; %d bytes on the wire%n",
+                s.framesSent(), (double) s.payloadBytes() / s.ticks(),
+                s.framesSent() == 0 ? 0.0 : (double) s.payloadBytes() / s.framesSent(), s.maxFrameBytes(),
+                s.link().bytesSent());
+        System.out.printf("   rtt mean %.3f ms, max %.3f ms; peer's copy %s%n", s.meanRttMicros() / 1000.0,
+                s.maxRttMicros() / 1000.0, inSync ? "in sync" : "OUT OF SYNC");
+        if (s.error() != null) System.out.println("   error: " + s.error());
+        return inSync && s.error() == null;
+    }
+}